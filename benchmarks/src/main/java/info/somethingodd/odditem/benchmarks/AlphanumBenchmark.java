@@ -0,0 +1,179 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.benchmarks;
+
+import info.somethingodd.odditem.util.AlphanumComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alphanumeric ordering: the chunk-building comparator it replaced, the in-place comparator and precomputed sort keys.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlphanumBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({Datasets.BUNDLED, "10000", "100000"})
+    public String dataset;
+
+    private final Comparator<String> legacy = new LegacyAlphanumComparator();
+    private final AlphanumComparator comparator = new AlphanumComparator();
+    private String[] aliases;
+    private String[] left;
+    private String[] right;
+    private char[][] leftKeys;
+    private char[][] rightKeys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> serialized = Datasets.load(dataset);
+        List<String> all = new ArrayList<String>();
+        for (Object names : serialized.values())
+            for (Object alias : (List<?>) names)
+                all.add(alias.toString());
+        aliases = all.toArray(new String[all.size()]);
+        left = Datasets.sample(serialized, PAIRS, 1);
+        right = Datasets.sample(serialized, PAIRS, 2);
+        leftKeys = new char[PAIRS][];
+        rightKeys = new char[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            leftKeys[i] = AlphanumComparator.sortKey(left[i]);
+            rightKeys[i] = AlphanumComparator.sortKey(right[i]);
+        }
+    }
+
+    private int next() {
+        next = (next + 1) & (PAIRS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public int compareLegacy() {
+        int i = next();
+        return legacy.compare(left[i], right[i]);
+    }
+
+    @Benchmark
+    public int compare() {
+        int i = next();
+        return comparator.compare(left[i], right[i]);
+    }
+
+    @Benchmark
+    public int compareSortKeys() {
+        int i = next();
+        return AlphanumComparator.compareSortKeys(leftKeys[i], rightKeys[i]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public String[] sortLegacy() {
+        String[] copy = aliases.clone();
+        Arrays.sort(copy, legacy);
+        return copy;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public String[] sort() {
+        String[] copy = aliases.clone();
+        Arrays.sort(copy, comparator);
+        return copy;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public String[] sortBySortKeys() {
+        String[] copy = aliases.clone();
+        AlphanumComparator.sort(copy);
+        return copy;
+    }
+
+    /**
+     * The comparator as it was before comparing in place, building a String per chunk
+     */
+    private static final class LegacyAlphanumComparator implements Comparator<String> {
+        private static boolean isDigit(char ch) {
+            return ch >= 48 && ch <= 57;
+        }
+
+        private static String getChunk(String s, int marker) {
+            StringBuilder chunk = new StringBuilder();
+            char c = s.charAt(marker);
+            chunk.append(c);
+            marker++;
+            while (marker < s.length()) {
+                c = s.charAt(marker);
+                if (isDigit(c) != isDigit(chunk.charAt(0)))
+                    break;
+                chunk.append(c);
+                marker++;
+            }
+            return chunk.toString();
+        }
+
+        @Override
+        public int compare(String o1, String o2) {
+            int thisMarker = 0;
+            int thatMarker = 0;
+            while (thisMarker < o1.length() && thatMarker < o2.length()) {
+                String thisChunk = getChunk(o1, thisMarker);
+                thisMarker += thisChunk.length();
+                String thatChunk = getChunk(o2, thatMarker);
+                thatMarker += thatChunk.length();
+                int result = 0;
+                if (isDigit(thisChunk.charAt(0)) && isDigit(thatChunk.charAt(0))) {
+                    int thisChunkLength = thisChunk.length();
+                    result = thisChunkLength - thatChunk.length();
+                    if (result == 0) {
+                        for (int i = 0; i < thisChunkLength; i++) {
+                            result = thisChunk.charAt(i) - thatChunk.charAt(i);
+                            if (result != 0)
+                                return result;
+                        }
+                    }
+                } else {
+                    result = thisChunk.compareTo(thatChunk);
+                }
+                if (result != 0)
+                    return result;
+            }
+            return o1.length() - o2.length();
+        }
+    }
+}
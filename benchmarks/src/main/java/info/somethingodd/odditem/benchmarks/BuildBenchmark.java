@@ -0,0 +1,86 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.benchmarks;
+
+import info.somethingodd.odditem.bktree.BKTree;
+import info.somethingodd.odditem.bktree.CompactBKTree;
+import info.somethingodd.odditem.configuration.Aliases;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the suggestion tree, per comparator mode: building the node tree, flattening it, and the whole
+ * alias load that does both.
+ * Building the larger trees takes a while; narrow the run with e.g. {@code -p dataset=bundled,10000}.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark {
+    @Param({Datasets.BUNDLED, "10000", "100000", "1000000"})
+    public String dataset;
+
+    @Param({"c", "k", "m", "r", "s"})
+    public String comparator;
+
+    private Map<String, Object> serialized;
+    private List<String> aliases;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        serialized = Datasets.load(dataset);
+        aliases = new ArrayList<String>();
+        for (Object keyAliases : serialized.values())
+            aliases.addAll((Collection<String>) keyAliases);
+    }
+
+    @Benchmark
+    public BKTree<String> tree() {
+        BKTree<String> tree = new BKTree<String>(comparator);
+        for (String alias : aliases)
+            tree.add(alias);
+        return tree;
+    }
+
+    @Benchmark
+    public CompactBKTree<String> compactTree() {
+        return tree().compact();
+    }
+
+    @Benchmark
+    public Aliases load() {
+        return new Aliases(serialized, comparator, 255);
+    }
+}
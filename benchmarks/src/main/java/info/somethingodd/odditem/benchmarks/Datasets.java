@@ -0,0 +1,133 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.benchmarks;
+
+import info.somethingodd.odditem.OddItem;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Alias sets for benchmarks, in the serialized form read from items.yml
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class Datasets {
+    /**
+     * Name of the dataset holding the items.yml bundled with OddItem
+     */
+    static final String BUNDLED = "bundled";
+
+    private Datasets() {
+    }
+
+    /**
+     * Loads a dataset
+     * @param name {@link #BUNDLED}, or a number of aliases to generate
+     * @return map of "id;durability" to list of aliases
+     */
+    static Map<String, Object> load(String name) {
+        if (BUNDLED.equals(name))
+            return bundled();
+        return generate(Integer.parseInt(name));
+    }
+
+    private static Map<String, Object> bundled() {
+        YamlConfiguration yamlConfiguration = new YamlConfiguration();
+        try {
+            yamlConfiguration.load(OddItem.class.getResourceAsStream("/items.yml"));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read bundled items.yml", e);
+        }
+        return yamlConfiguration.getConfigurationSection("items").getValues(false);
+    }
+
+    /**
+     * Generates aliases resembling items.yml: one to four lowercase names, some with a digit, per item
+     * @param size number of aliases
+     * @return map of "id;durability" to list of aliases
+     */
+    private static Map<String, Object> generate(int size) {
+        Random random = new Random(size);
+        Map<String, Object> serialized = new LinkedHashMap<String, Object>();
+        Set<String> seen = new HashSet<String>();
+        int count = 0;
+        int item = 0;
+        while (count < size) {
+            List<String> aliases = new ArrayList<String>();
+            int wanted = Math.min(size - count, 1 + random.nextInt(4));
+            while (aliases.size() < wanted) {
+                String alias = word(random);
+                if (seen.add(alias))
+                    aliases.add(alias);
+            }
+            serialized.put((1 + item / 16) + ";" + (item % 16), aliases);
+            count += aliases.size();
+            item++;
+        }
+        return serialized;
+    }
+
+    private static String word(Random random) {
+        StringBuilder str = new StringBuilder();
+        int length = 4 + random.nextInt(9);
+        for (int i = 0; i < length; i++)
+            str.append((char) ('a' + random.nextInt(26)));
+        if (random.nextInt(4) == 0)
+            str.append(random.nextInt(10));
+        return str.toString();
+    }
+
+    /**
+     * Picks aliases from a dataset
+     * @param serialized dataset
+     * @param count number of aliases
+     * @param seed random seed
+     * @return aliases, with repeats if the dataset is small
+     */
+    static String[] sample(Map<String, Object> serialized, int count, long seed) {
+        List<String> all = new ArrayList<String>();
+        for (Object aliases : serialized.values())
+            for (Object alias : (List<?>) aliases)
+                all.add(alias.toString());
+        Random random = new Random(seed);
+        String[] sample = new String[count];
+        for (int i = 0; i < count; i++)
+            sample[i] = all.get(random.nextInt(all.size()));
+        return sample;
+    }
+
+    /**
+     * Introduces one typo into each alias
+     * @param aliases aliases
+     * @param seed random seed
+     * @return misspelled copies
+     */
+    static String[] misspell(String[] aliases, long seed) {
+        Random random = new Random(seed);
+        String[] misspelled = new String[aliases.length];
+        for (int i = 0; i < aliases.length; i++) {
+            char[] chars = aliases[i].toCharArray();
+            chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+            misspelled[i] = new String(chars) + (char) ('a' + random.nextInt(26));
+        }
+        return misspelled;
+    }
+}
@@ -0,0 +1,114 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.benchmarks;
+
+import info.somethingodd.odditem.OddItem;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory comparison, containment and removal over full 36-slot player inventories.
+ * Removal benchmarks restore the inventory on every call; {@link #restore()} measures that cost alone.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+    private static final int SLOTS = 36;
+
+    private ItemStack[] contents;
+    private int[] amounts;
+    private Inventory inventory;
+    private Inventory shuffled;
+    private ItemStack wanted;
+    private ItemStack[] removals;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        contents = new ItemStack[SLOTS];
+        amounts = new int[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            if (random.nextInt(6) == 0)
+                continue;
+            amounts[i] = 1 + random.nextInt(64);
+            contents[i] = new ItemStack(1 + random.nextInt(12), amounts[i], (short) random.nextInt(3));
+        }
+        inventory = Inventories.of(contents);
+        ItemStack[] other = new ItemStack[SLOTS];
+        for (int i = 0; i < SLOTS; i++)
+            other[i] = contents[(i * 7) % SLOTS] == null ? null : contents[(i * 7) % SLOTS].clone();
+        shuffled = Inventories.of(other);
+        // ask for items that are present, spread over the inventory
+        removals = new ItemStack[5];
+        for (int i = 0, slot = SLOTS - 1; i < removals.length; slot--) {
+            if (contents[slot] == null)
+                continue;
+            removals[i++] = new ItemStack(contents[slot].getTypeId(), 16, contents[slot].getDurability());
+        }
+        wanted = new ItemStack(removals[0].getTypeId(), 32, (short) 0);
+    }
+
+    @Benchmark
+    public boolean compare() {
+        return OddItem.compare(inventory, shuffled, true, true);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return OddItem.contains(inventory, wanted, false, true);
+    }
+
+    @Benchmark
+    public boolean containsAll() {
+        return OddItem.snapshot(inventory).containsAll(true, removals);
+    }
+
+    @Benchmark
+    public Inventory restore() {
+        for (int i = 0; i < SLOTS; i++)
+            if (contents[i] != null)
+                contents[i].setAmount(amounts[i]);
+        inventory.setContents(contents);
+        return inventory;
+    }
+
+    @Benchmark
+    public int[] removeItems() {
+        return OddItem.removeItem(restore(), true, false, removals);
+    }
+
+    @Benchmark
+    public int[] removeItemsTransactional() {
+        return OddItem.removeItem(restore(), true, true, removals);
+    }
+}
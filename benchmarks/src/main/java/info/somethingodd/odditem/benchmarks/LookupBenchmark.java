@@ -0,0 +1,87 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.benchmarks;
+
+import info.somethingodd.odditem.configuration.Aliases;
+import info.somethingodd.odditem.configuration.ItemTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alias lookups: exact, case-folded and missing names.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({Datasets.BUNDLED, "10000", "100000", "1000000"})
+    public String dataset;
+
+    private Aliases aliases;
+    private String[] exact;
+    private String[] folded;
+    private String[] missing;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> serialized = Datasets.load(dataset);
+        aliases = new Aliases(serialized, "r", 255);
+        exact = Datasets.sample(serialized, QUERIES, 1);
+        folded = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++)
+            folded[i] = exact[i].toUpperCase(Locale.ENGLISH);
+        missing = Datasets.misspell(exact, 2);
+    }
+
+    private int next() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public ItemTemplate exact() {
+        return aliases.getTemplate(exact[next()]);
+    }
+
+    @Benchmark
+    public ItemTemplate caseInsensitive() {
+        return aliases.getTemplate(folded[next()]);
+    }
+
+    @Benchmark
+    public ItemTemplate miss() {
+        return aliases.getTemplate(missing[next()]);
+    }
+}
@@ -0,0 +1,130 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.benchmarks;
+
+import info.somethingodd.odditem.OddItem;
+import info.somethingodd.odditem.bktree.Match;
+import info.somethingodd.odditem.bktree.SuggestionIndex;
+import info.somethingodd.odditem.configuration.Aliases;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuzzy suggestions for misspelled aliases, per comparator mode.
+ * Building the larger trees takes a while; narrow the run with e.g. {@code -p dataset=bundled,10000}.
+ * The recall benchmarks also count, as hits and misses, whether the alias each query was misspelled from
+ * is among the suggestions.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param({Datasets.BUNDLED, "10000", "100000", "1000000"})
+    public String dataset;
+
+    @Param({"c", "k", "m", "r", "s", "t"})
+    public String comparator;
+
+    private SuggestionIndex<String> suggestions;
+    private String[] expected;
+    private String[] missing;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> serialized = Datasets.load(dataset);
+        suggestions = new Aliases(serialized, comparator, 255).getSuggestions();
+        expected = Datasets.sample(serialized, QUERIES, 1);
+        missing = Datasets.misspell(expected, 2);
+    }
+
+    private int next() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Match<String> bestMatch() {
+        return suggestions.findBestMatch(missing[next()]);
+    }
+
+    @Benchmark
+    public List<Match<String>> bestFive() {
+        return suggestions.findBestMatches(missing[next()], 5, Integer.MAX_VALUE, OddItem.ALPHANUM_COMPARATOR);
+    }
+
+    @Benchmark
+    public Match<String> bestMatchRecall(Recall recall) {
+        int i = next();
+        Match<String> match = suggestions.findBestMatch(missing[i]);
+        recall.count(expected[i].equals(match.getTerm()));
+        return match;
+    }
+
+    @Benchmark
+    public List<Match<String>> bestFiveRecall(Recall recall) {
+        int i = next();
+        List<Match<String>> matches = suggestions.findBestMatches(missing[i], 5, Integer.MAX_VALUE, OddItem.ALPHANUM_COMPARATOR);
+        boolean hit = false;
+        for (Match<String> match : matches)
+            hit |= expected[i].equals(match.getTerm());
+        recall.count(hit);
+        return matches;
+    }
+
+    /**
+     * Suggestions that did and did not include the original alias; recall is hits / (hits + misses)
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Recall {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+
+        void count(boolean hit) {
+            if (hit)
+                hits++;
+            else
+                misses++;
+        }
+    }
+}
@@ -13,26 +13,38 @@
  */
 package info.somethingodd.odditem;
 
+import info.somethingodd.odditem.configuration.AliasCache;
 import info.somethingodd.odditem.configuration.Aliases;
 import info.somethingodd.odditem.configuration.Groups;
 import info.somethingodd.odditem.goddamnithidendraputitinitsownplugin.Metrics;
 import info.somethingodd.odditem.configuration.Group;
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Gordon Pettey (petteyg359@gmail.com)
  */
 public class Configuration {
-    private static String comparator;
-    private static int maxBlockId;
+    private static volatile Settings settings;
+    private static final AtomicBoolean loading = new AtomicBoolean();
+    private static final Object lock = new Object();
+    private static final Object publishing = new Object();
+    /**
+     * Bumped when the plugin is disabled, so loads started before then never publish; guarded by publishing
+     */
+    private static int generation;
     private final OddItemBase oddItemBase;
 
     /**
@@ -44,11 +56,11 @@ public class Configuration {
     }
 
     /**
-     * Gets comparator type
+     * Gets comparator type of the loaded aliases
      * @return comparator string
      */
     public static String getComparator() {
-        return comparator;
+        return settings.comparator;
     }
 
     /**
@@ -56,11 +68,44 @@ public class Configuration {
      * @return maximum block ID
      */
     public static int getMaxBlockId() {
-        return maxBlockId;
+        return settings.maxBlockId;
     }
 
     /**
-     * Configures OddItem
+     * Whether to reload automatically when items.yml or groups.yml change
+     * @return true if watching is enabled
+     */
+    public static boolean isWatching() {
+        return settings.watch;
+    }
+
+    /**
+     * Gets how long files must stay unchanged before an automatic reload
+     * @return delay in milliseconds
+     */
+    public static long getWatchDelay() {
+        return settings.watchDelay;
+    }
+
+    /**
+     * Gets comparators for locales that should not use the default one
+     * @return unmodifiable map of locale table name, such as de, to comparator
+     */
+    public static Map<String, String> getLocaleComparators() {
+        return settings.localeComparators;
+    }
+
+    /**
+     * Gets how many aliases loaded locale tables may hold together before the least recently used are dropped
+     * @return alias limit
+     */
+    public static int getLocaleAliasLimit() {
+        return settings.localeAliasLimit;
+    }
+
+    /**
+     * Configures OddItem once at startup, writing default files, reading settings and starting Metrics.
+     * Does not load aliases or groups.
      */
     public void configure() {
         try {
@@ -73,8 +118,7 @@ public class Configuration {
             e.printStackTrace();
         }
         YamlConfiguration yamlConfiguration = (YamlConfiguration) oddItemBase.getConfig();
-        comparator = yamlConfiguration.getString("comparator", "r");
-        maxBlockId = yamlConfiguration.getInt("maxBlockId", 256);
+        settings = new Settings(yamlConfiguration);
 
         if (yamlConfiguration.getBoolean("metrics", true)) {
             try {
@@ -85,8 +129,146 @@ public class Configuration {
         }
 
         ConfigurationSerialization.registerClass(Aliases.class);
+        ConfigurationSerialization.registerClass(Group.class);
+        ConfigurationSerialization.registerClass(Groups.class);
+    }
 
-        ConfigurationSerialization.registerClass(Aliases.class);
+    /**
+     * Parses items.yml and groups.yml and builds all indexes. Touches no shared state, so it may run on any thread.
+     * @param settings settings to build with
+     * @return fully built registry
+     */
+    Registry load(Settings settings) {
+        Aliases items = loadItems(settings);
+        Groups groups = new Groups(readGroups(), items);
+        reportUnresolved(groups, items, settings.groupSuggestions);
+        return new Registry(items, groups, new LocaleAliases(oddItemBase, settings), settings);
+    }
+
+    /**
+     * Publishes a registry and the settings it was built with, unless the plugin was disabled since the load started;
+     * callers hold lock
+     * @param registry registry to publish
+     * @param generation {@link #generation()} when the load started
+     * @return whether the registry was published
+     */
+    private static boolean publish(Registry registry, int generation) {
+        synchronized (publishing) {
+            if (generation != Configuration.generation)
+                return false;
+            settings = registry.settings;
+            OddItem.publish(registry);
+            return true;
+        }
+    }
+
+    /**
+     * @return current generation, to hand to {@link #publish(Registry, int)}
+     */
+    private static int generation() {
+        synchronized (publishing) {
+            return generation;
+        }
+    }
+
+    /**
+     * Clears the published registry and stops loads still running from publishing theirs, so nothing built
+     * before the plugin was disabled outlives it. Does not wait for them to finish.
+     */
+    static void disable() {
+        synchronized (publishing) {
+            generation++;
+            OddItem.clear();
+        }
+    }
+
+    /**
+     * Rereads items.yml and groups.yml and publishes a registry patched from the current one,
+     * so only aliases added or removed since it was built touch the suggestion index.
+     * Loads in full if nothing has been published yet. Keeps the settings of the current registry.
+     */
+    void update() {
+        int generation = generation();
+        synchronized (lock) {
+            long start = System.nanoTime();
+            if (!OddItem.isLoaded()) {
+                publish(load(settings), generation);
+                return;
+            }
+            Registry previous = OddItem.getRegistry();
+            Aliases items = previous.items.patch(readItems());
+            Groups groups = new Groups(readGroups(), items);
+            reportUnresolved(groups, items, previous.settings.groupSuggestions);
+            // locale tables are independent of items.yml, so they survive an update
+            if (!publish(new Registry(items, groups, previous.locales, previous.settings), generation))
+                return;
+            int[] changes = items.changesSince(previous.items);
+            OddItem.getStatistics().reload(System.nanoTime() - start);
+            oddItemBase.getLogger().info("Updated in " + (System.nanoTime() - start) / 1000000 + " ms: " + changes[0] + " aliases added, " + changes[1] + " removed, " + changes[2] + " changed");
+        }
+    }
+
+    /**
+     * Logs group items that matched no alias as one warning, with suggestions if enabled
+     * @param groups loaded groups
+     * @param items aliases groups were resolved against
+     * @param groupSuggestions whether to suggest aliases
+     */
+    private void reportUnresolved(Groups groups, Aliases items, boolean groupSuggestions) {
+        Collection<String> unresolved = groups.getUnresolved();
+        if (unresolved.isEmpty())
+            return;
+        StringBuilder str = new StringBuilder();
+        str.append(unresolved.size()).append(" invalid items in groups.yml: ");
+        boolean first = true;
+        for (String item : unresolved) {
+            if (!first)
+                str.append(", ");
+            first = false;
+            str.append(item);
+            if (groupSuggestions) {
+                String suggestion = items.getSuggestions().findBestWordMatch(item.contains(",") ? item.substring(0, item.indexOf(",")) : item);
+                if (suggestion != null)
+                    str.append(" (").append(suggestion).append("?)");
+            }
+        }
+        oddItemBase.getLogger().warning(str.toString());
+    }
+
+    /**
+     * Loads aliases from items.idx if it was built from the current items.yml and settings,
+     * otherwise parses items.yml and rewrites items.idx.
+     * @param settings settings to build with
+     * @return aliases
+     */
+    private Aliases loadItems(Settings settings) {
+        AliasCache cache = null;
+        if (settings.indexCache) {
+            File file = new File(oddItemBase.getDataFolder(), "items.idx");
+            try {
+                File source = new File(oddItemBase.getDataFolder(), "items.yml");
+                byte[] key = AliasCache.key(settings.comparator, settings.maxBlockId, source.isFile() ? new FileInputStream(source) : null, oddItemBase.getResource("items.yml"));
+                cache = new AliasCache(file, settings.comparator, settings.maxBlockId, key);
+                Aliases items = cache.read();
+                if (items != null)
+                    return items;
+            } catch (IOException e) {
+                oddItemBase.getLogger().warning("Error reading items.idx: " + e.getMessage());
+            }
+        }
+        Map<String, Object> serialized = readItems();
+        Aliases items = new Aliases(serialized, settings.comparator, settings.maxBlockId);
+        if (cache != null) {
+            try {
+                cache.write(serialized, items);
+            } catch (IOException e) {
+                oddItemBase.getLogger().warning("Error writing items.idx: " + e.getMessage());
+            }
+        }
+        return items;
+    }
+
+    private Map<String, Object> readItems() {
         YamlConfiguration itemConfiguration = new YamlConfiguration();
         try {
             itemConfiguration.load(new File(oddItemBase.getDataFolder(), "items.yml"));
@@ -100,17 +282,121 @@ public class Configuration {
         } catch (Exception e) {
             oddItemBase.getLogger().warning("Error opening default resource for items.yml!");
         }
-        OddItem.items = Aliases.valueOf(itemConfiguration.getConfigurationSection("items").getValues(false));
+        return itemConfiguration.getConfigurationSection("items").getValues(false);
+    }
 
-        ConfigurationSerialization.registerClass(Group.class);
-        ConfigurationSerialization.registerClass(Groups.class);
+    private Map<String, Object> readGroups() {
         YamlConfiguration groupConfiguration = new YamlConfiguration();
         try {
             groupConfiguration.load(new File(oddItemBase.getDataFolder(), "groups.yml"));
         } catch (Exception e) {
             oddItemBase.getLogger().warning("Error opening groups.yml!");
         }
-        OddItem.groups = Groups.valueOf(groupConfiguration.getConfigurationSection("groups").getValues(false));
+        return groupConfiguration.getConfigurationSection("groups").getValues(false);
+    }
+
+    /**
+     * Loads aliases and groups on a worker thread, then publishes them through {@link OddItem}.
+     * Until then, lookups see the previously published registry, or the "loading" state if there is none.
+     */
+    public void loadAsync() {
+        loadAsync(null);
+    }
+
+    /**
+     * Builds a new registry beside the published one and swaps it in once complete, so lookups never see a partial load.
+     * Readers still holding the old registry finish against it; it is collected after they let go.
+     * Uses the settings of the published registry, or those read by {@link #configure()}.
+     * @param sender receives the result on the main thread, or null to only log it
+     */
+    public void loadAsync(CommandSender sender) {
+        if (!loading.compareAndSet(false, true)) {
+            report(sender, "[OddItem] A reload is already in progress");
+            return;
+        }
+        start(sender, settings);
+    }
+
+    /**
+     * Rereads config.yml and loads like {@link #loadAsync(CommandSender)}. Settings are only read once no other load
+     * is in progress, and take effect when the registry built with them is published; if config.yml cannot be read,
+     * the previous settings and aliases stay.
+     * @param sender receives the result on the main thread, or null to only log it
+     */
+    public void reload(CommandSender sender) {
+        if (!loading.compareAndSet(false, true)) {
+            report(sender, "[OddItem] A reload is already in progress");
+            return;
+        }
+        Settings reread;
+        try {
+            // reloadConfig() only logs a broken file and falls back to defaults, so parse it first to fail loudly
+            new YamlConfiguration().load(new File(oddItemBase.getDataFolder(), "config.yml"));
+            oddItemBase.reloadConfig();
+            reread = new Settings(oddItemBase.getConfig());
+        } catch (Exception e) {
+            loading.set(false);
+            report(sender, "[OddItem] Reload failed, keeping previous aliases: " + e.getMessage());
+            return;
+        }
+        start(sender, reread);
+    }
+
+    /**
+     * Starts the loader thread; the caller has set loading
+     * @param sender receives the result on the main thread, or null to only log it
+     * @param settings settings to build with
+     */
+    private void start(final CommandSender sender, final Settings settings) {
+        final int generation = generation();
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long start = System.nanoTime();
+                    Registry previous;
+                    Registry registry;
+                    synchronized (lock) {
+                        if (generation != generation())
+                            return;
+                        previous = OddItem.isLoaded() ? OddItem.getRegistry() : null;
+                        registry = load(settings);
+                        if (!publish(registry, generation))
+                            return;
+                    }
+                    OddItem.getStatistics().reload(System.nanoTime() - start);
+                    long ms = (System.nanoTime() - start) / 1000000;
+                    oddItemBase.getLogger().info(registry.items.itemCount() + " items with " + registry.items.aliasCount() + " aliases loaded in " + ms + " ms.");
+                    if (sender != null) {
+                        int[] changes = registry.items.changesSince(previous == null ? null : previous.items);
+                        report(sender, "[OddItem] Reloaded in " + ms + " ms: " + changes[0] + " aliases added, " + changes[1] + " removed, " + changes[2] + " changed");
+                    }
+                } catch (Exception e) {
+                    oddItemBase.getLogger().severe("Configuration error!");
+                    e.printStackTrace();
+                    report(sender, "[OddItem] Reload failed, keeping previous aliases: " + e.getMessage());
+                } finally {
+                    loading.set(false);
+                }
+            }
+        }, "OddItem loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Sends message to sender from the main thread
+     * @param sender recipient, or null for none
+     * @param message message
+     */
+    private void report(final CommandSender sender, final String message) {
+        if (sender == null) return;
+        oddItemBase.getServer().getScheduler().scheduleSyncDelayedTask(oddItemBase, new Runnable() {
+            @Override
+            public void run() {
+                sender.sendMessage(message);
+            }
+        });
     }
 
     /**
@@ -0,0 +1,115 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the plugin data folder and updates the registry when items.yml or groups.yml change.
+ * Bursts of events, such as an editor writing a file in several steps, are collapsed into one update
+ * once the folder has been quiet for {@link Configuration#getWatchDelay()} milliseconds.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class ConfigurationWatcher implements Runnable {
+    private final OddItemBase oddItemBase;
+    private final Configuration configuration;
+    private final WatchService watchService;
+    private final long delay;
+
+    private ConfigurationWatcher(OddItemBase oddItemBase, Configuration configuration) throws IOException {
+        this.oddItemBase = oddItemBase;
+        this.configuration = configuration;
+        Path folder = oddItemBase.getDataFolder().toPath();
+        watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        delay = Math.max(0, Configuration.getWatchDelay());
+    }
+
+    /**
+     * Starts watching on a daemon thread
+     * @param oddItemBase Base plugin
+     * @param configuration configuration to update from
+     * @return running watcher
+     * @throws IOException if the data folder cannot be watched
+     */
+    static ConfigurationWatcher start(OddItemBase oddItemBase, Configuration configuration) throws IOException {
+        ConfigurationWatcher watcher = new ConfigurationWatcher(oddItemBase, configuration);
+        Thread thread = new Thread(watcher, "OddItem watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    /**
+     * Stops watching
+     */
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            oddItemBase.getLogger().warning("Error closing file watcher: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                boolean changed = drain(watchService.take());
+                WatchKey key;
+                while ((key = watchService.poll(delay, TimeUnit.MILLISECONDS)) != null)
+                    changed |= drain(key);
+                if (changed) {
+                    try {
+                        configuration.update();
+                    } catch (Exception e) {
+                        oddItemBase.getLogger().severe("Configuration error!");
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed on disable
+        }
+    }
+
+    /**
+     * Consumes the events of key and re-arms it
+     * @return true if items.yml or groups.yml may have changed
+     */
+    private static boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (name.equals("items.yml") || name.equals("groups.yml"))
+                changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,231 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import info.somethingodd.odditem.configuration.Aliases;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Alias tables for player locales, read from items_&lt;locale&gt;.yml in the data folder, each built with the
+ * comparator configured for its locale. The data folder is listed once when this is built, on each load or reload.
+ * A table is loaded on a daemon thread the first time its locale is asked for; until then {@link #get(String)}
+ * returns {@code null} and callers use the main aliases. A table that fails to load is not tried again until the
+ * next reload. Lookups never touch the disk; they only read concurrent maps and stamp the table they use. Once loaded tables hold more than {@link Configuration#getLocaleAliasLimit()}
+ * aliases together, the least recently used are dropped when the next one finishes loading, always keeping it.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class LocaleAliases {
+    private static final int MAX_LOCALE_LENGTH = 16;
+
+    private final OddItemBase oddItemBase;
+    private final String comparator;
+    private final Map<String, String> comparators;
+    private final int maxBlockId;
+    private final int aliasLimit;
+    private final Map<String, File> tables = new HashMap<String, File>();
+    private final Set<String> failed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<String, Table> loaded = new ConcurrentHashMap<String, Table>();
+    private final Set<String> loading = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private int aliasCount;
+
+    /**
+     * Constructor; lists the locale tables in the data folder but reads none until its locale is asked for
+     * @param oddItemBase Base plugin
+     * @param settings settings to build tables with
+     */
+    LocaleAliases(OddItemBase oddItemBase, Settings settings) {
+        this.oddItemBase = oddItemBase;
+        comparator = settings.comparator;
+        comparators = settings.localeComparators;
+        maxBlockId = settings.maxBlockId;
+        aliasLimit = settings.localeAliasLimit;
+        File[] files = oddItemBase.getDataFolder().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.startsWith("items_") || !name.endsWith(".yml") || !file.isFile())
+                    continue;
+                name = name.substring("items_".length(), name.length() - ".yml".length()).toLowerCase(Locale.ENGLISH);
+                if (isName(name))
+                    tables.put(name, file);
+            }
+        }
+    }
+
+    /**
+     * Finds the table for a locale among those listed, trying e.g. de_de and then de
+     * @param locale client locale such as de_DE
+     * @return table name, or "" if there is none or it failed to load
+     */
+    private String file(String locale) {
+        String name = locale.toLowerCase(Locale.ENGLISH).replace('-', '_');
+        // locales come from clients, so only ever resolve them against the listed tables
+        if (!isName(name))
+            return "";
+        if (!tables.containsKey(name)) {
+            int separator = name.indexOf('_');
+            if (separator < 0)
+                return "";
+            name = name.substring(0, separator);
+            if (!tables.containsKey(name))
+                return "";
+        }
+        // failed only ever holds listed tables, so it stays as small as the data folder
+        return failed.contains(name) ? "" : name;
+    }
+
+    /**
+     * @param name normalized locale
+     * @return whether name is short and made of only a-z, 0-9 and _
+     */
+    private static boolean isName(String name) {
+        if (name.isEmpty() || name.length() > MAX_LOCALE_LENGTH)
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < 'a' || c > 'z') && (c < '0' || c > '9') && c != '_')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the aliases for a locale, starting to load them if they are not loaded yet
+     * @param locale client locale such as de_DE, may be null
+     * @return aliases, or {@code null} if the locale has none or they are still loading
+     */
+    Aliases get(String locale) {
+        if (locale == null)
+            return null;
+        String file = file(locale);
+        if (file.isEmpty())
+            return null;
+        Table table = loaded.get(file);
+        if (table == null && loading.add(file)) {
+            // the table may have been stored between the two calls; loaded() stores before it stops loading
+            table = loaded.get(file);
+            if (table == null)
+                load(file);
+            else
+                loading.remove(file);
+        }
+        if (table == null)
+            return null;
+        table.used = System.nanoTime();
+        return table.aliases;
+    }
+
+    private void load(final String file) {
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Aliases aliases = null;
+                try {
+                    long start = System.nanoTime();
+                    YamlConfiguration itemConfiguration = new YamlConfiguration();
+                    itemConfiguration.load(tables.get(file));
+                    ConfigurationSection section = itemConfiguration.getConfigurationSection("items");
+                    String localeComparator = comparators.containsKey(file) ? comparators.get(file) : comparator;
+                    aliases = new Aliases(section == null ? new HashMap<String, Object>() : section.getValues(false), localeComparator, maxBlockId);
+                    oddItemBase.getLogger().info(aliases.aliasCount() + " aliases for locale " + file + " loaded in " + (System.nanoTime() - start) / 1000000 + " ms.");
+                } catch (Exception e) {
+                    oddItemBase.getLogger().warning("Error loading items_" + file + ".yml: " + e.getMessage());
+                } finally {
+                    loaded(file, aliases);
+                }
+            }
+        }, "OddItem locale loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Stores loaded aliases and evicts least recently used locales over the limit
+     * @param file table name
+     * @param aliases loaded aliases, or {@code null} if loading failed
+     */
+    private synchronized void loaded(String file, Aliases aliases) {
+        if (aliases == null) {
+            // do not retry a broken file on every lookup
+            failed.add(file);
+            loading.remove(file);
+            return;
+        }
+        Table table = new Table(aliases);
+        loaded.put(file, table);
+        loading.remove(file);
+        aliasCount += aliases.aliasCount();
+        while (aliasCount > aliasLimit && loaded.size() > 1) {
+            Map.Entry<String, Table> eldest = null;
+            for (Map.Entry<String, Table> entry : loaded.entrySet())
+                if (entry.getValue() != table && (eldest == null || entry.getValue().used - eldest.getValue().used < 0))
+                    eldest = entry;
+            loaded.remove(eldest.getKey());
+            aliasCount -= eldest.getValue().aliases.aliasCount();
+            oddItemBase.getLogger().info("Unloaded aliases for locale " + eldest.getKey() + ".");
+        }
+    }
+
+    /**
+     * @return loaded locales and their alias counts, least recently used first
+     */
+    Map<String, Integer> getLoaded() {
+        // lookups keep stamping tables, so sort on a snapshot of the stamps
+        final Map<String, Long> used = new HashMap<String, Long>();
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Map.Entry<String, Table> entry : loaded.entrySet()) {
+            used.put(entry.getKey(), entry.getValue().used);
+            counts.put(entry.getKey(), entry.getValue().aliases.aliasCount());
+        }
+        List<String> names = new ArrayList<String>(used.keySet());
+        Collections.sort(names, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                long difference = used.get(a) - used.get(b);
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        Map<String, Integer> sorted = new LinkedHashMap<String, Integer>();
+        for (String name : names)
+            sorted.put(name, counts.get(name));
+        return sorted;
+    }
+
+    /**
+     * Loaded aliases of one locale and when they were last used
+     */
+    private static final class Table {
+        final Aliases aliases;
+        volatile long used = System.nanoTime();
+
+        Table(Aliases aliases) {
+            this.aliases = aliases;
+        }
+    }
+}
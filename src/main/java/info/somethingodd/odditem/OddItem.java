@@ -13,40 +13,148 @@
  */
 package info.somethingodd.odditem;
 
+import info.somethingodd.odditem.bktree.Match;
 import info.somethingodd.odditem.configuration.Aliases;
 import info.somethingodd.odditem.configuration.Group;
 import info.somethingodd.odditem.configuration.Groups;
+import info.somethingodd.odditem.configuration.ItemTemplate;
 import info.somethingodd.odditem.util.AlphanumComparator;
+import info.somethingodd.odditem.util.InventorySnapshot;
+import info.somethingodd.odditem.util.ItemHistogram;
+import info.somethingodd.odditem.util.ItemKey;
 import info.somethingodd.odditem.util.ItemStackComparator;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.getspout.spoutapi.inventory.SpoutItemStack;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Gordon Pettey (petteyg359@gmail.com)
  */
 public class OddItem {
-    protected static Aliases items;
-    protected static Groups groups;
+    private static volatile Registry registry;
+    private static final Statistics statistics = new Statistics();
+    private static final ConcurrentMap<Class<?>, Method> LOCALE_METHODS = new ConcurrentHashMap<Class<?>, Method>();
+    private static final ConcurrentMap<Class<?>, Method> SPIGOT_METHODS = new ConcurrentHashMap<Class<?>, Method>();
+    private static final Method NO_METHOD;
     public static final AlphanumComparator ALPHANUM_COMPARATOR;
     public static final ItemStackComparator ITEM_STACK_COMPARATOR;
 
     static {
         ALPHANUM_COMPARATOR = new AlphanumComparator();
         ITEM_STACK_COMPARATOR = new ItemStackComparator();
+        try {
+            // stands for "no such method" in the method caches, which cannot hold null
+            NO_METHOD = Object.class.getMethod("hashCode");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
     }
 
     /**
      * Clears alias and group lists.
      */
     protected static void clear() {
-        items = null;
-        groups = null;
+        registry = null;
+    }
+
+    /**
+     * Publishes a fully built registry to all readers at once.
+     *
+     * @param registry aliases and groups to serve
+     */
+    static void publish(Registry registry) {
+        OddItem.registry = registry;
+    }
+
+    /**
+     * Gets the current registry, which stays consistent for the caller even if a new one is published meanwhile.
+     *
+     * @return current registry
+     * @throws IllegalStateException if aliases have not finished loading
+     */
+    static Registry getRegistry() throws IllegalStateException {
+        Registry current = registry;
+        if (current == null)
+            throw new IllegalStateException("OddItem has not finished loading");
+        return current;
+    }
+
+    /**
+     * Gets lookup, suggestion, inventory and reload statistics, for display or for other plugins to poll
+     *
+     * @return statistics since the server started
+     */
+    public static Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns whether aliases and groups are loaded. Until they are, lookups throw {@link IllegalStateException}.
+     *
+     * @return whether OddItem is ready for lookups
+     */
+    public static boolean isLoaded() {
+        return registry != null;
+    }
+
+    /**
+     * Gets the client locale of a player, on servers whose API exposes it
+     *
+     * @param sender command sender
+     * @return locale such as en_US, or {@code null} for non-players and servers without locales
+     */
+    public static String getLocale(CommandSender sender) {
+        if (!(sender instanceof Player))
+            return null;
+        // Player.getLocale() and Player.Spigot.getLocale() are newer than the API OddItem builds against
+        Method getLocale = method(LOCALE_METHODS, sender.getClass(), "getLocale");
+        if (getLocale != null) {
+            try {
+                return (String) getLocale.invoke(sender);
+            } catch (Exception e) {
+                // try Spigot's
+            }
+        }
+        Method spigot = method(SPIGOT_METHODS, sender.getClass(), "spigot");
+        if (spigot == null)
+            return null;
+        try {
+            Object player = spigot.invoke(sender);
+            getLocale = method(LOCALE_METHODS, player.getClass(), "getLocale");
+            return getLocale == null ? null : (String) getLocale.invoke(player);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a public no-argument method once per class
+     *
+     * @param cache methods found so far, by class
+     * @param type class to look in
+     * @param name method name
+     * @return method, or {@code null} if type has none
+     */
+    private static Method method(ConcurrentMap<Class<?>, Method> cache, Class<?> type, String name) {
+        Method method = cache.get(type);
+        if (method == null) {
+            try {
+                method = type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                method = NO_METHOD;
+            }
+            cache.putIfAbsent(type, method);
+        }
+        return method == NO_METHOD ? null : method;
     }
 
     /**
@@ -73,7 +181,7 @@ public class OddItem {
     }
 
     /**
-     * Compares two Inventory for identical contents ignoring order, and possibly ignoring durability and quantity
+     * Compares two Inventory for identical contents ignoring order and empty slots, and possibly ignoring durability and quantity
      *
      * @param a          first Inventory
      * @param b          second Inventory
@@ -82,27 +190,31 @@ public class OddItem {
      * @return Inventories are identical
      */
     public static boolean compare(Inventory a, Inventory b, boolean durability, boolean quantity) {
-        List<ItemStack> ia = new ArrayList<ItemStack>();
-        List<ItemStack> ib = new ArrayList<ItemStack>();
-        for (int i = 0; i < a.getSize(); i++) {
-            ia.add(a.getItem(i));
-        }
-        for (int i = 0; i < b.getSize(); i++) {
-            ib.add(b.getItem(i));
-        }
-        for (int i = 0; i < ia.size(); i++) {
-            boolean inequal = true;
-            for (int j = 0; j < ib.size(); j++) {
-                if (compare(ia.get(i), ib.get(j), durability, quantity)) {
-                    inequal = false;
-                    ia.remove(i);
-                    ib.remove(j);
-                    break;
-                }
-            }
-            if (inequal) return false;
+        statistics.compare();
+        ItemHistogram histogram = new ItemHistogram(a.getSize() + b.getSize());
+        count(histogram, a.getContents(), durability, quantity, 1);
+        count(histogram, b.getContents(), durability, quantity, -1);
+        return histogram.isZero();
+    }
+
+    /**
+     * Counts stacks by item, and by amount if quantity matters
+     *
+     * @param histogram  counters to update
+     * @param contents   stacks to count, empty slots are skipped
+     * @param durability whether to distinguish durability
+     * @param quantity   whether to distinguish amount
+     * @param delta      amount to add per stack
+     */
+    private static void count(ItemHistogram histogram, ItemStack[] contents, boolean durability, boolean quantity, int delta) {
+        for (ItemStack itemStack : contents) {
+            if (itemStack == null || itemStack.getTypeId() == 0)
+                continue;
+            long key = ItemKey.of(itemStack, durability);
+            if (quantity)
+                key = (key << 32) | (itemStack.getAmount() & 0xFFFFFFFFL);
+            histogram.add(key, delta);
         }
-        return true;
     }
 
     /**
@@ -245,7 +357,8 @@ public class OddItem {
     }
 
     /**
-     * Returns whether inventory contains itemStack, possibly ignoring durability, quantity, and enchantment, and allows checking for "at least"
+     * Returns whether inventory contains itemStack, possibly ignoring durability, quantity, and enchantment, and allows checking for "at least".
+     * "At least" adds up the amounts of all matching stacks, so quantity only applies to exact checks.
      * @param inventory inventory to look in
      * @param itemStack ItemStack to look for
      * @param durability whether to check durability
@@ -255,19 +368,33 @@ public class OddItem {
      * @return itemStack is contained in inventory
      */
     public static boolean contains(Inventory inventory, ItemStack itemStack, boolean durability, boolean quantity, boolean enchantment, boolean exact) {
-        ItemStack[] contents = inventory.getContents();
-        if (exact) {
-            for (int i = 0; i < contents.length; i++)
-                if (compare(contents[i], itemStack, durability, quantity, enchantment)) return true;
-        } else {
+        statistics.contains();
+        if (!exact) {
+            // a single query adds up matching stacks in place; snapshot(inventory) pays off for many queries
             int amount = itemStack.getAmount();
-            for (int i = 0; i < contents.length; i++)
-                if (compare(contents[i], itemStack, durability, quantity, enchantment)) amount -= contents[i].getAmount();
+            for (ItemStack content : inventory.getContents()) {
+                if (amount <= 0)
+                    break;
+                if (content != null && content.getTypeId() != 0 && compare(content, itemStack, durability, false, enchantment))
+                    amount -= content.getAmount();
+            }
             return amount <= 0;
         }
+        for (ItemStack content : inventory.getContents())
+            if (content != null && compare(content, itemStack, durability, quantity, enchantment)) return true;
         return false;
     }
 
+    /**
+     * Counts the contents of inventory once, for repeated count/contains queries
+     *
+     * @param inventory inventory to count
+     * @return snapshot of item totals
+     */
+    public static InventorySnapshot snapshot(Inventory inventory) {
+        return new InventorySnapshot(inventory);
+    }
+
     /**
      * Gets all aliases for the item represented by an ItemStack
      *
@@ -275,7 +402,21 @@ public class OddItem {
      * @return List of aliases
      */
     public static Collection<String> getAliases(ItemStack itemStack) {
-        return items.getAliases(itemStack);
+        return getRegistry().items.getAliases(itemStack);
+    }
+
+    /**
+     * Gets all aliases for an item in a locale, or the default aliases if the locale has none for it
+     *
+     * @param itemStack item
+     * @param locale client locale, such as from {@link #getLocale(CommandSender)}; may be null
+     * @return aliases or {@code null}
+     */
+    public static Collection<String> getAliases(ItemStack itemStack, String locale) {
+        Registry registry = getRegistry();
+        Aliases local = registry.locales.get(locale);
+        Collection<String> aliases = local == null ? null : local.getAliases(itemStack);
+        return aliases != null ? aliases : registry.items.getAliases(itemStack);
     }
 
     /**
@@ -290,6 +431,17 @@ public class OddItem {
         return getAliases(itemStack);
     }
 
+    /**
+     * Gets aliases beginning with prefix, ignoring case, e.g. for tab completion
+     *
+     * @param prefix start of alias
+     * @param limit maximum number of aliases, at most {@link info.somethingodd.odditem.util.PrefixIndex#TOP}
+     * @return up to limit aliases in alphanumeric order
+     */
+    public static List<String> getAliasesByPrefix(String prefix, int limit) {
+        return getRegistry().items.getAliasesByPrefix(prefix, limit);
+    }
+
     /**
      * Get an Group by name
      *
@@ -297,7 +449,7 @@ public class OddItem {
      * @return group with name
      */
     public static Group getItemGroup(String name) {
-        return groups.getGroup(name);
+        return getRegistry().groups.getGroup(name);
     }
 
     /**
@@ -307,7 +459,7 @@ public class OddItem {
      * @return matching groups
      */
     public static Collection<Group> getItemGroups(String key) {
-        return groups.getGroups(key);
+        return getRegistry().groups.getGroups(key);
     }
 
     /**
@@ -318,7 +470,7 @@ public class OddItem {
      * @return matching groups
      */
     public static Collection<Group> getItemGroups(String key, String key2) {
-        return groups.getGroups(key, key2);
+        return getRegistry().groups.getGroups(key, key2);
     }
 
     /**
@@ -338,7 +490,7 @@ public class OddItem {
     }
 
     /**
-     * Returns an ItemStack of specific quantity of alias query
+     * Returns a new ItemStack of specific quantity of alias query
      *
      * @param query item name
      * @param quantity quantity
@@ -346,14 +498,80 @@ public class OddItem {
      * @throws IllegalArgumentException exception if item not found, message contains closest match
      */
     public static ItemStack getItemStack(String query, int quantity) throws IllegalArgumentException {
-        ItemStack i;
-        i = items.getItemStack(query);
-        if (i == null)
-            i = items.getItemStack(query.toLowerCase());
-        if (i == null)
-            throw new IllegalArgumentException(items.getSuggestions().findBestWordMatch(query));
-        i.setAmount(quantity);
-        return i;
+        return getItemStack(query, quantity, null);
+    }
+
+    /**
+     * Returns a new ItemStack of specific quantity of alias query, looking in the aliases of a locale first.
+     * A locale's aliases are loaded the first time it is asked for; until they are, only the default aliases are used.
+     *
+     * @param query item name
+     * @param quantity quantity
+     * @param locale client locale, such as from {@link #getLocale(CommandSender)}; may be null
+     * @return <a href="http://jd.bukkit.org/apidocs/org/bukkit/inventory/ItemStack.html?is-external=true">ItemStack</a>
+     * @throws IllegalArgumentException exception if item not found, message contains closest match, or is null if there are no aliases
+     */
+    public static ItemStack getItemStack(String query, int quantity, String locale) throws IllegalArgumentException {
+        Registry registry = getRegistry();
+        Aliases local = registry.locales.get(locale);
+        Aliases items = local != null ? local : registry.items;
+        ItemTemplate itemTemplate = items.getTemplate(query, local != null ? registry.items : null, statistics.lookups);
+        if (itemTemplate == null) {
+            long start = System.nanoTime();
+            Match<String> match = items.getSuggestions().findBestMatch(query);
+            statistics.bestMatch(System.nanoTime() - start, match.getVisited());
+            throw new IllegalArgumentException(match.getTerm());
+        }
+        return itemTemplate.toItemStack(quantity);
+    }
+
+    /**
+     * Looks up alias query like {@link #getItemStack(String, int, String)}, without searching for a closest match
+     *
+     * @param query item name
+     * @param locale client locale; may be null
+     * @return item, or {@code null} if there is no such alias
+     * @throws IllegalStateException if aliases have not finished loading
+     */
+    public static ItemTemplate getTemplate(String query, String locale) throws IllegalStateException {
+        Registry registry = getRegistry();
+        Aliases local = registry.locales.get(locale);
+        return (local != null ? local : registry.items).getTemplate(query, local != null ? registry.items : null, statistics.lookups);
+    }
+
+    /**
+     * Returns the closest aliases to query, ranked by distance and then alphanumerically
+     *
+     * @param query item name
+     * @param limit maximum number of suggestions
+     * @param maxDistance largest distance to accept; distances are negative in the soundex modes r and s, where
+     *                    any maxDistance from 0 up accepts every alias
+     * @return up to limit aliases
+     */
+    public static List<String> getSuggestions(String query, int limit, int maxDistance) {
+        return getSuggestions(query, limit, maxDistance, null);
+    }
+
+    /**
+     * Returns the closest aliases to query in the aliases of a locale, or in the default aliases if it has none loaded
+     *
+     * @param query item name
+     * @param limit maximum number of suggestions
+     * @param maxDistance largest distance to accept; distances are negative in the soundex modes r and s, where
+     *                    any maxDistance from 0 up accepts every alias
+     * @param locale client locale, such as from {@link #getLocale(CommandSender)}; may be null
+     * @return up to limit aliases
+     */
+    public static List<String> getSuggestions(String query, int limit, int maxDistance, String locale) {
+        Registry registry = getRegistry();
+        Aliases local = registry.locales.get(locale);
+        long start = System.nanoTime();
+        List<Match<String>> matches = (local != null ? local : registry.items).getSuggestions().findBestMatches(query, limit, maxDistance, ALPHANUM_COMPARATOR);
+        statistics.suggestion(System.nanoTime() - start);
+        List<String> suggestions = new ArrayList<String>(matches.size());
+        for (Match<String> match : matches)
+            suggestions.add(match.getTerm());
+        return suggestions;
     }
 
     /**
@@ -375,23 +593,7 @@ public class OddItem {
      * @return amount left over (i.e. player had less than itemStack.getAmount() available)
      */
     public static int removeItem(Player player, ItemStack itemStack, boolean durability) {
-        ItemStack[] inventory = player.getInventory().getContents();
-        int amount = itemStack.getAmount();
-        for (int i = 0; i < inventory.length; i++) {
-            if (inventory[i] != null && compare(inventory[i], itemStack, durability, false)) {
-                if (amount > inventory[i].getAmount()) {
-                    amount -= inventory[i].getAmount();
-                    player.getInventory().clear(i);
-                } else if (amount > 0) {
-                    inventory[i].setAmount(inventory[i].getAmount() - amount);
-                    amount = 0;
-                } else {
-                    player.getInventory().clear(i);
-                }
-            }
-            if (amount == 0) break;
-        }
-        return amount;
+        return removeItem(player.getInventory(), durability, false, itemStack)[0];
     }
 
     /**
@@ -414,9 +616,95 @@ public class OddItem {
      * @return amounts left over (i.e. player had less than itemStack.getAmount() available)
      */
     public static int[] removeItem(Player player, boolean durability, ItemStack... itemStacks) {
+        return removeItem(player.getInventory(), durability, false, itemStacks);
+    }
+
+    /**
+     * Removes itemStacks from player's inventory, possibly ignoring durability, possibly all-or-nothing
+     *
+     * @param player Player to remove itemStacks from
+     * @param durability whether to check durability
+     * @param transactional whether to remove nothing unless every itemStack is available in full
+     * @param itemStacks ItemStacks to remove
+     * @return amounts left over, or in a failed transaction the amounts missing
+     */
+    public static int[] removeItem(Player player, boolean durability, boolean transactional, ItemStack... itemStacks) {
+        return removeItem(player.getInventory(), durability, transactional, itemStacks);
+    }
+
+    /**
+     * Removes itemStacks from inventory in a single pass, possibly ignoring durability, possibly all-or-nothing.
+     * Requests for the same item are combined, and satisfied in the order given.
+     *
+     * @param inventory Inventory to remove itemStacks from
+     * @param durability whether to check durability
+     * @param transactional whether to remove nothing unless every itemStack is available in full
+     * @param itemStacks ItemStacks to remove
+     * @return amounts left over, or in a failed transaction the amounts missing
+     */
+    public static int[] removeItem(Inventory inventory, boolean durability, boolean transactional, ItemStack... itemStacks) {
+        statistics.remove();
+        long[] keys = new long[itemStacks.length];
+        ItemHistogram demand = new ItemHistogram(itemStacks.length);
+        for (int i = 0; i < itemStacks.length; i++) {
+            keys[i] = ItemKey.of(itemStacks[i], durability);
+            demand.add(keys[i], Math.max(0, itemStacks[i].getAmount()));
+        }
+        ItemStack[] contents = inventory.getContents();
+        if (transactional) {
+            ItemHistogram supply = new ItemHistogram(itemStacks.length);
+            for (ItemStack itemStack : contents) {
+                if (itemStack == null)
+                    continue;
+                long key = ItemKey.of(itemStack, durability);
+                if (demand.get(key) > 0)
+                    supply.add(key, itemStack.getAmount());
+            }
+            boolean available = true;
+            for (long key : keys)
+                available &= supply.get(key) >= demand.get(key);
+            if (!available)
+                return leftovers(itemStacks, keys, supply, demand);
+        }
+        ItemHistogram removed = new ItemHistogram(itemStacks.length);
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack itemStack = contents[i];
+            if (itemStack == null)
+                continue;
+            long key = ItemKey.of(itemStack, durability);
+            int wanted = demand.get(key) - removed.get(key);
+            if (wanted <= 0)
+                continue;
+            int amount = itemStack.getAmount();
+            if (amount > wanted) {
+                itemStack.setAmount(amount - wanted);
+                inventory.setItem(i, itemStack);
+                removed.add(key, wanted);
+            } else {
+                inventory.clear(i);
+                removed.add(key, amount);
+            }
+        }
+        return leftovers(itemStacks, keys, removed, demand);
+    }
+
+    /**
+     * Shares the amount available for each item among the requests for it, in order
+     *
+     * @param itemStacks requested ItemStacks
+     * @param keys item key of each request
+     * @param available amount available per item key
+     * @param demand amount requested per item key
+     * @return amount of each request not covered
+     */
+    private static int[] leftovers(ItemStack[] itemStacks, long[] keys, ItemHistogram available, ItemHistogram demand) {
+        ItemHistogram used = new ItemHistogram(itemStacks.length);
         int[] amount = new int[itemStacks.length];
         for (int i = 0; i < itemStacks.length; i++) {
-            amount[i] = removeItem(player, itemStacks[i], durability);
+            int wanted = Math.max(0, itemStacks[i].getAmount());
+            int covered = Math.min(wanted, Math.min(available.get(keys[i]), demand.get(keys[i])) - used.get(keys[i]));
+            used.add(keys[i], covered);
+            amount[i] = wanted - covered;
         }
         return amount;
     }
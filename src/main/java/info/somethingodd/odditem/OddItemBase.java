@@ -19,12 +19,18 @@ import org.bukkit.plugin.java.JavaPlugin;
  * @author Gordon Pettey (petteyg359@gmail.com)
  */
 public class OddItemBase extends JavaPlugin {
+    private ConfigurationWatcher watcher;
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void onDisable() {
-        OddItem.clear();
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+        Configuration.disable();
     }
 
     /**
@@ -32,14 +38,25 @@ public class OddItemBase extends JavaPlugin {
      */
     @Override
     public void onEnable() {
+        Configuration configuration = new Configuration(this);
         try {
-            Configuration configuration = new Configuration(this);
             configuration.configure();
         } catch (Exception e) {
             getLogger().severe("Configuration error!");
             e.printStackTrace();
         }
-        getCommand("odditem").setExecutor(new OddItemCommandExecutor(this));
-        getLogger().info(OddItem.items.itemCount() + " items with " + OddItem.items.aliasCount() + " aliases loaded.");
+        OddItemCommandExecutor commandExecutor = new OddItemCommandExecutor(this);
+        getCommand("odditem").setExecutor(commandExecutor);
+        getCommand("odditem").setTabCompleter(commandExecutor);
+        getCommand("odditeminfo").setExecutor(commandExecutor);
+        getCommand("odditemreload").setExecutor(commandExecutor);
+        configuration.loadAsync();
+        if (Configuration.isWatching()) {
+            try {
+                watcher = ConfigurationWatcher.start(this, configuration);
+            } catch (Exception e) {
+                getLogger().warning("Unable to watch configuration files: " + e.getMessage());
+            }
+        }
     }
 }
@@ -13,19 +13,27 @@
  */
 package info.somethingodd.odditem;
 
+import info.somethingodd.odditem.configuration.ItemTemplate;
+import info.somethingodd.odditem.util.LatencyHistogram;
+import info.somethingodd.odditem.util.PrefixIndex;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * @author Gordon Pettey (petteyg359@gmail.com)
  */
-public class OddItemCommandExecutor implements CommandExecutor {
+public class OddItemCommandExecutor implements CommandExecutor, TabCompleter {
+    private static final int COMPLETIONS = PrefixIndex.TOP;
     private OddItemBase oddItemBase;
 
     /**
@@ -43,6 +51,10 @@ public class OddItemCommandExecutor implements CommandExecutor {
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (command.getName().equals("odditem")) {
             if (sender.hasPermission("odditem.alias")) {
+                if (!OddItem.isLoaded()) {
+                    sender.sendMessage("[OddItem] Loading...");
+                    return true;
+                }
                 switch (args.length) {
                     case 0:
                         if (sender instanceof Player) {
@@ -58,11 +70,13 @@ public class OddItemCommandExecutor implements CommandExecutor {
                         }
                         break;
                     case 1:
-                        try {
-                            sender.sendMessage(OddItem.getAliases(args[0]).toString());
-                        } catch (IllegalArgumentException e) {
-                            sender.sendMessage("[OddItem] No such alias. Similar: " + e.getMessage());
-                        }
+                        String locale = OddItem.getLocale(sender);
+                        // a miss goes straight to the suggestions, rather than also searching for the closest match
+                        ItemTemplate itemTemplate = OddItem.getTemplate(args[0], locale);
+                        if (itemTemplate != null)
+                            sender.sendMessage(OddItem.getAliases(itemTemplate.toItemStack(1), locale).toString());
+                        else
+                            sender.sendMessage("[OddItem] No such alias. Similar: " + OddItem.getSuggestions(args[0], 5, Integer.MAX_VALUE, locale));
                         return true;
                 }
             } else {
@@ -70,8 +84,24 @@ public class OddItemCommandExecutor implements CommandExecutor {
             }
         } else if (command.getName().equals("odditeminfo")) {
             if (sender.hasPermission("odditem.info")) {
-                sender.sendMessage("[OddItem] " + OddItem.items.itemCount() + " items with " + OddItem.items.aliasCount() + " aliases");
-                sender.sendMessage("[OddItem] " + OddItem.groups.groupCount() + " groups with " + OddItem.groups.aliasCount() + " aliases");
+                if (!OddItem.isLoaded()) {
+                    sender.sendMessage("[OddItem] Loading...");
+                    return true;
+                }
+                Registry registry = OddItem.getRegistry();
+                sender.sendMessage("[OddItem] " + registry.items.itemCount() + " items with " + registry.items.aliasCount() + " aliases");
+                sender.sendMessage("[OddItem] " + registry.groups.groupCount() + " groups with " + registry.groups.aliasCount() + " aliases");
+                Statistics statistics = OddItem.getStatistics();
+                sender.sendMessage("[OddItem] Lookups: " + statistics.getExactHits() + " exact, " + statistics.getFoldedHits() + " ignoring case, " + statistics.getMisses() + " missed");
+                LatencyHistogram suggestions = statistics.getSuggestionLatency();
+                long searches = statistics.getBestMatchSearches();
+                sender.sendMessage("[OddItem] Suggestions: " + suggestions.getCount() + ", mean " + suggestions.getMeanNanos() / 1000 + " us, 99% under " + suggestions.getPercentileNanos(99) / 1000 + " us, " + (searches == 0 ? 0 : statistics.getNodesVisited() / searches) + " nodes per best match");
+                sender.sendMessage("[OddItem] Inventory calls: " + statistics.getCompareCalls() + " compare, " + statistics.getContainsCalls() + " contains, " + statistics.getRemoveCalls() + " remove");
+                LatencyHistogram reloads = statistics.getReloadLatency();
+                sender.sendMessage("[OddItem] Loads: " + reloads.getCount() + ", mean " + reloads.getMeanNanos() / 1000000 + " ms");
+                Map<String, Integer> locales = registry.locales.getLoaded();
+                if (!locales.isEmpty())
+                    sender.sendMessage("[OddItem] Locales loaded (aliases): " + locales);
             } else {
                 sender.sendMessage("DENIED");
             }
@@ -79,8 +109,7 @@ public class OddItemCommandExecutor implements CommandExecutor {
         } else if (command.getName().equals("odditemreload")) {
             if (sender.hasPermission("odditem.reload")) {
                 sender.sendMessage("[OddItem] Reloading...");
-                OddItem.clear();
-                new Configuration(oddItemBase).configure();
+                new Configuration(oddItemBase).reload(sender);
             } else {
                 sender.sendMessage("DENIED");
             }
@@ -88,4 +117,14 @@ public class OddItemCommandExecutor implements CommandExecutor {
         }
         return false;
     }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (command.getName().equals("odditem") && args.length == 1 && sender.hasPermission("odditem.alias") && OddItem.isLoaded())
+            return OddItem.getAliasesByPrefix(args[0], COMPLETIONS);
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,43 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import info.somethingodd.odditem.configuration.Aliases;
+import info.somethingodd.odditem.configuration.Groups;
+
+/**
+ * Fully built, immutable set of aliases and groups, published to readers as a single reference.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class Registry {
+    final Aliases items;
+    final Groups groups;
+    final LocaleAliases locales;
+    final Settings settings;
+
+    /**
+     * Constructor
+     * @param items item aliases
+     * @param groups item groups, resolved against items
+     * @param locales per-locale aliases, loaded on demand
+     * @param settings settings all of these were built with
+     */
+    Registry(Aliases items, Groups groups, LocaleAliases locales, Settings settings) {
+        this.items = items;
+        this.groups = groups;
+        this.locales = locales;
+        this.settings = settings;
+    }
+}
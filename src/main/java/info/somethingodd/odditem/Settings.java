@@ -0,0 +1,58 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings read from config.yml at one point in time. A load is built with one instance and publishes it together
+ * with its {@link Registry}, so rereading config.yml never changes settings under a load in progress.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class Settings {
+    final String comparator;
+    final int maxBlockId;
+    final boolean groupSuggestions;
+    final boolean indexCache;
+    final boolean watch;
+    final long watchDelay;
+    final Map<String, String> localeComparators;
+    final int localeAliasLimit;
+
+    /**
+     * Constructor
+     * @param config contents of config.yml
+     */
+    Settings(ConfigurationSection config) {
+        comparator = config.getString("comparator", "r");
+        maxBlockId = config.getInt("maxBlockId", 256);
+        groupSuggestions = config.getBoolean("groupSuggestions", false);
+        indexCache = config.getBoolean("indexCache", true);
+        watch = config.getBoolean("watch", false);
+        watchDelay = config.getLong("watchDelay", 500);
+        Map<String, String> comparators = new HashMap<String, String>();
+        ConfigurationSection section = config.getConfigurationSection("localeComparators");
+        if (section != null)
+            for (String locale : section.getKeys(false))
+                comparators.put(locale.toLowerCase(Locale.ENGLISH), section.getString(locale));
+        localeComparators = Collections.unmodifiableMap(comparators);
+        localeAliasLimit = config.getInt("localeAliasLimit", 100000);
+    }
+}
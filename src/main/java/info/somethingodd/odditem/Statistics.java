@@ -0,0 +1,148 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import info.somethingodd.odditem.configuration.Aliases;
+import info.somethingodd.odditem.util.LatencyHistogram;
+import info.somethingodd.odditem.util.StripedCounter;
+
+/**
+ * Running counters and latency histograms for OddItem's public API, kept since the server started.
+ * Updating them costs a few uncontended atomic adds per call, and any thread may read them at any time.
+ * Obtain the instance from {@link OddItem#getStatistics()}.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class Statistics {
+    private final StripedCounter exactHits = new StripedCounter();
+    private final StripedCounter foldedHits = new StripedCounter();
+    private final StripedCounter misses = new StripedCounter();
+    private final LatencyHistogram suggestionLatency = new LatencyHistogram();
+    private final StripedCounter bestMatches = new StripedCounter();
+    private final StripedCounter nodesVisited = new StripedCounter();
+    private final StripedCounter compareCalls = new StripedCounter();
+    private final StripedCounter containsCalls = new StripedCounter();
+    private final StripedCounter removeCalls = new StripedCounter();
+    private final LatencyHistogram reloadLatency = new LatencyHistogram();
+    final Aliases.LookupListener lookups = new Aliases.LookupListener() {
+        @Override
+        public void lookup(boolean found, boolean exact) {
+            if (!found)
+                misses.increment();
+            else if (exact)
+                exactHits.increment();
+            else
+                foldedHits.increment();
+        }
+    };
+
+    Statistics() {
+    }
+
+    void suggestion(long nanos) {
+        suggestionLatency.record(nanos);
+    }
+
+    void bestMatch(long nanos, int visited) {
+        suggestionLatency.record(nanos);
+        bestMatches.increment();
+        nodesVisited.add(visited);
+    }
+
+    void compare() {
+        compareCalls.increment();
+    }
+
+    void contains() {
+        containsCalls.increment();
+    }
+
+    void remove() {
+        removeCalls.increment();
+    }
+
+    void reload(long nanos) {
+        reloadLatency.record(nanos);
+    }
+
+    /**
+     * @return lookups that matched an alias exactly
+     */
+    public long getExactHits() {
+        return exactHits.sum();
+    }
+
+    /**
+     * @return lookups that matched an alias only when ignoring case
+     */
+    public long getFoldedHits() {
+        return foldedHits.sum();
+    }
+
+    /**
+     * @return lookups that matched no alias
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return time spent per fuzzy suggestion search
+     */
+    public LatencyHistogram getSuggestionLatency() {
+        return suggestionLatency;
+    }
+
+    /**
+     * @return single best-match searches, made when a lookup misses; ranked suggestion searches are not counted here
+     */
+    public long getBestMatchSearches() {
+        return bestMatches.sum();
+    }
+
+    /**
+     * @return suggestion index entries compared, over the searches counted by {@link #getBestMatchSearches()} only
+     */
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    /**
+     * @return calls comparing two inventories
+     */
+    public long getCompareCalls() {
+        return compareCalls.sum();
+    }
+
+    /**
+     * @return calls checking whether an inventory contains an item
+     */
+    public long getContainsCalls() {
+        return containsCalls.sum();
+    }
+
+    /**
+     * @return calls removing items from an inventory
+     */
+    public long getRemoveCalls() {
+        return removeCalls.sum();
+    }
+
+    /**
+     * @return time taken per load, reload or file-watch update
+     */
+    public LatencyHistogram getReloadLatency() {
+        return reloadLatency;
+    }
+}
@@ -1,10 +1,13 @@
 package info.somethingodd.odditem.bktree;
 
 
-import org.apache.commons.codec.EncoderException;
-import org.apache.commons.codec.language.*;
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 /**
  * This class in an implementation of a Burkhard-Keller tree in Java.
@@ -31,28 +34,74 @@ import java.util.HashMap;
  */
 
 
-public class BKTree <E> {
+public class BKTree <E> implements SuggestionIndex<E> {
 
 	private Node root = null;
-    private E bestTerm;
+    private int size;
     private final Distance distance;
 
 	public BKTree(String comparator) {
 		this.distance = new Distance(comparator);
 	}
 
+    /**
+     * Adds a term. Not safe to call while other threads are searching.
+     * @param term term to add
+     */
     public void add(E term) {
+		String key = distance.encode(term);
 		if(root != null) {
-			root.add(term);
+			root.add(term, key);
 		}
 		else {
-			root = new Node(term);
+			root = new Node(term, key);
 		}
+		size++;
 	}
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Flattens this tree into a read-only {@link CompactBKTree} holding the same terms and edges.
+     * @return compact copy of this tree
+     */
+    public CompactBKTree<E> compact() {
+        Object[] terms = new Object[size];
+        String[] keys = new String[size];
+        int[] edges = new int[size];
+        int[] children = new int[size + 1];
+        List<Node> nodes = new ArrayList<Node>(size);
+        if(root != null) {
+            nodes.add(root);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            terms[i] = node.term;
+            keys[i] = node.key;
+            children[i] = nodes.size();
+            List<Integer> scores = new ArrayList<Integer>(node.children.keySet());
+            // keep the HashMap's visiting order for non-metric scores, whose pruning depends on it
+            if(distance.isMetric()) {
+                Collections.sort(scores);
+            }
+            for (Integer score : scores) {
+                edges[nodes.size()] = score;
+                nodes.add(node.children.get(score));
+            }
+        }
+        children[nodes.size()] = nodes.size();
+        return new CompactBKTree<E>(distance, terms, keys, edges, children);
+    }
+
     public void clear() {
-        root.children.clear();
         root = null;
+        size = 0;
     }
 
 	/**
@@ -66,7 +115,56 @@ public class BKTree <E> {
 	 */
 	public HashMap<E, Integer> query(E searchObject, int threshold) {
         HashMap<E, Integer> matches = new HashMap<E, Integer>();
-		root.query(searchObject, threshold, matches);
+		if(root != null) {
+			root.query(distance.encode(searchObject), threshold, matches);
+		}
+		return matches;
+	}
+
+	/**
+	 * Attempts to find the closest match to the search term.
+	 * Safe to call concurrently; all search state lives in the returned {@link Match}.
+	 * @param term
+	 * @return the closest match and its distance
+	 */
+	@Override
+	public Match<E> findBestMatch(E term) {
+		Match<E> match = new Match<E>();
+		if(root != null) {
+			root.findBestMatch(distance.encode(term), match);
+		}
+		return match;
+	}
+
+	/**
+	 * Finds up to limit terms within maxDistance of the search term in a single traversal.
+	 * Candidates are kept in a bounded heap; once it is full, the search radius shrinks to
+	 * the distance of the worst candidate held.
+	 * @param term search term
+	 * @param limit maximum number of matches
+	 * @param maxDistance largest distance to accept
+	 * @param order tie-breaker for matches at equal distance
+	 * @return matches ordered by distance, then by order
+	 */
+	@Override
+	public List<Match<E>> findBestMatches(E term, int limit, int maxDistance, final Comparator<? super E> order) {
+		final Comparator<Match<E>> ranking = new Comparator<Match<E>>() {
+			@Override
+			public int compare(Match<E> a, Match<E> b) {
+				if(a.getDistance() != b.getDistance()) {
+					return a.getDistance() < b.getDistance() ? -1 : 1;
+				}
+				return order.compare(a.getTerm(), b.getTerm());
+			}
+		};
+		List<Match<E>> matches = new ArrayList<Match<E>>();
+		if(root == null || limit < 1) {
+			return matches;
+		}
+		PriorityQueue<Match<E>> heap = new PriorityQueue<Match<E>>(Math.min(limit, size()), Collections.reverseOrder(ranking));
+		root.findBestMatches(distance.encode(term), limit, maxDistance, ranking, heap);
+		matches.addAll(heap);
+		Collections.sort(matches, ranking);
 		return matches;
 	}
 
@@ -76,7 +174,7 @@ public class BKTree <E> {
 	 * @return the edit distance of the best match
 	 */
 	public int find(E term) {
-		return root.findBestMatch(term, Integer.MAX_VALUE);
+		return findBestMatch(term).getDistance();
 	}
 
 	/**
@@ -84,9 +182,9 @@ public class BKTree <E> {
 	 * @param term
 	 * @return a match that is within the best edit distance of the search term.
 	 */
+	@Override
 	public E findBestWordMatch(E term) {
-		root.findBestMatch(term, Integer.MAX_VALUE);
-		return root.getBestTerm();
+		return findBestMatch(term).getTerm();
 	}
 
 	/**
@@ -95,129 +193,114 @@ public class BKTree <E> {
 	 * @return a match that is within the best edit distance of the search term.
 	 */
 	public HashMap<E,Integer> findBestWordMatchWithDistance(E term) {
-		int distance = root.findBestMatch(term, Integer.MAX_VALUE);
+		Match<E> match = findBestMatch(term);
 		HashMap<E, Integer> returnMap = new HashMap<E, Integer>();
-		returnMap.put(root.getBestTerm(), distance);
+		returnMap.put(match.getTerm(), match.getDistance());
 		return returnMap;
 	}
 
-    private class Distance {
-        private Caverphone2 c;
-        private ColognePhonetic k;
-        private final LevenshteinDistance l = new LevenshteinDistance();
-        private Metaphone m;
-        private RefinedSoundex r;
-        private Soundex s;
-
-        public Distance(String comparator) {
-            if (comparator.equals("c"))
-                this.c = new Caverphone2();
-            else if (comparator.equals("k"))
-                this.k = new ColognePhonetic();
-            else if (comparator.equals("m"))
-                this.m = new Metaphone();
-            else if (comparator.equals("s"))
-                this.s = new Soundex();
-            else
-                this.r = new RefinedSoundex();
-
-        }
-
-        public int distance(E a, E b) {
-            String x = (String) a;
-            String y = (String) b;
-            if (c != null) {
-                return l.distance(c.encode(x), c.encode(y));
-            } else if (k != null) {
-                return l.distance(k.encode(x), k.encode(y));
-            } else if (m != null) {
-                return l.distance(m.encode(x), m.encode(y));
-            } else if (r != null) {
-                try {
-                    return -r.difference(x, y);
-                } catch (EncoderException e) {
-                    e.printStackTrace();
-                }
-            } else if (s != null) {
-                try {
-                    return -s.difference(x, y);
-                } catch (EncoderException e) {
-                    e.printStackTrace();
-                }
-            }
-            return l.distance(x, y);
-        }
-    }
-
 	private class Node {
 
 		final E term;
+		final String key;
 		final HashMap<Integer, Node> children;
+		int maxScore;
 
-		public Node(E term) {
+		public Node(E term, String key) {
 			this.term = term;
+			this.key = key;
 			children = new HashMap<Integer, Node>();
 		}
 
-		public void add(E term) {
-			int score = distance.distance(term, this.term);
+		public void add(E term, String key) {
+			int score = distance.distance(key, this.key);
 
 			Node child = children.get(score);
 			if(child != null) {
-				child.add(term);
+				child.add(term, key);
 			}
 			else {
-				children.put(score, new Node(term));
+				children.put(score, new Node(term, key));
+				if(score > maxScore) {
+					maxScore = score;
+				}
 			}
 		}
 
-		public int findBestMatch(E term, int bestDistance) {
-			int distanceAtNode = distance.distance(term, this.term);
+		/**
+		 * Largest distance at this node that can still lead to a child within radius of the query
+		 */
+		private int bound(int radius) {
+			if(!distance.isMetric() || radius > Integer.MAX_VALUE - maxScore) {
+				return Integer.MAX_VALUE;
+			}
+			return radius + maxScore;
+		}
 
-//			System.out.println("term = " + term + ", this.term = " + this.term + ", distance = " + distanceAtNode);
+		public void findBestMatch(String key, Match<E> match) {
+			int bound = bound(match.getDistance());
+			int distanceAtNode = distance.distance(key, this.key, bound);
+			match.visit();
+			match.offer(this.term, distanceAtNode);
 
-//			if(distanceAtNode == 1) {
-//				return distanceAtNode;
-//			}
+			if(distanceAtNode > bound) {
+				return;
+			}
 
-			if(distanceAtNode < bestDistance) {
-				bestDistance = distanceAtNode;
-				bestTerm = this.term;
+			for (Map.Entry<Integer, Node> child : children.entrySet()) {
+				int score = child.getKey();
+				int bestDistance = match.getDistance();
+				if(score < distanceAtNode + bestDistance && (!distance.isMetric() || score > distanceAtNode - bestDistance)) {
+					child.getValue().findBestMatch(key, match);
+				}
 			}
+		}
 
-			int possibleBest = bestDistance;
+		public void findBestMatches(String key, int limit, int maxDistance, Comparator<Match<E>> ranking, PriorityQueue<Match<E>> heap) {
+			int radius = heap.size() < limit ? maxDistance : heap.peek().getDistance();
+			int bound = bound(radius);
+			int distanceAtNode = distance.distance(key, this.key, bound);
 
-			for (Integer score : children.keySet()) {
-				if(score < distanceAtNode + bestDistance ) {
-					possibleBest = children.get(score).findBestMatch(term, bestDistance);
-					if(possibleBest < bestDistance) {
-						bestDistance = possibleBest;
-					}
+			if(distanceAtNode <= radius) {
+				Match<E> candidate = new Match<E>(this.term, distanceAtNode);
+				if(heap.size() < limit) {
+					heap.add(candidate);
+				}
+				else if(ranking.compare(candidate, heap.peek()) < 0) {
+					heap.poll();
+					heap.add(candidate);
 				}
 			}
-			return bestDistance;
-		}
 
-		public E getBestTerm() {
-			return bestTerm;
+			if(distanceAtNode > bound) {
+				return;
+			}
+
+			for (Map.Entry<Integer, Node> child : children.entrySet()) {
+				int score = child.getKey();
+				radius = heap.size() < limit ? maxDistance : heap.peek().getDistance();
+				if(score - distanceAtNode <= radius && (!distance.isMetric() || distanceAtNode - score <= radius)) {
+					child.getValue().findBestMatches(key, limit, maxDistance, ranking, heap);
+				}
+			}
 		}
 
-		public void query(E term, int threshold, HashMap<E, Integer> collected) {
-			int distanceAtNode = distance.distance(term, this.term);
+		public void query(String key, int threshold, HashMap<E, Integer> collected) {
+			int bound = bound(threshold);
+			int distanceAtNode = distance.distance(key, this.key, bound);
 
-			if(distanceAtNode == threshold) {
+			if(distanceAtNode <= threshold) {
 				collected.put(this.term, distanceAtNode);
-				return;
 			}
 
-			if(distanceAtNode < threshold) {
-				collected.put(this.term, distanceAtNode);
+			if(distanceAtNode > bound) {
+				return;
 			}
 
 			for (int score = distanceAtNode-threshold; score <= threshold+distanceAtNode; score++) {
 				Node child = children.get(score);
 				if(child != null) {
-					child.query(term, threshold, collected);
+					child.query(key, threshold, collected);
 				}
 			}
 		}
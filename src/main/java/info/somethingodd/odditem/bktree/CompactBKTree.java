@@ -0,0 +1,258 @@
+package info.somethingodd.odditem.bktree;
+
+import info.somethingodd.odditem.util.AliasPool;
+import info.somethingodd.odditem.util.CaseInsensitiveIndex;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Read-only, flattened form of a {@link BKTree}, built with {@link BKTree#compact()}.
+ *
+ * Nodes are numbered breadth-first, so the children of node i are the
+ * contiguous range children[i] until children[i + 1], with their edge
+ * distance in edges[]. For metric comparators children are sorted by edge,
+ * so a search can stop at the first edge beyond its radius. Terms and encoded
+ * keys sit in parallel arrays, which replaces a HashMap and boxed Integer keys
+ * per node with a few array slots. A tree over aliases can instead refer
+ * to its terms by id in an {@link AliasPool}, materializing a term only once it
+ * qualifies as a match, and shares one key between nodes with the same encoding.
+ *
+ * @author Gordon Pettey
+ */
+public class CompactBKTree<E> implements SuggestionIndex<E> {
+    private final Distance distance;
+    private final Object[] terms;
+    private final AliasPool pool;
+    private final int[] ids;
+    private final String[] keys;
+    private final int[] edges;
+    private final int[] children;
+
+    CompactBKTree(Distance distance, Object[] terms, String[] keys, int[] edges, int[] children) {
+        this(distance, terms, null, null, keys, edges, children);
+    }
+
+    private CompactBKTree(Distance distance, Object[] terms, AliasPool pool, int[] ids, String[] keys, int[] edges, int[] children) {
+        this.distance = distance;
+        this.terms = terms;
+        this.pool = pool;
+        this.ids = ids;
+        this.keys = keys;
+        this.edges = edges;
+        this.children = children;
+    }
+
+    /**
+     * Copies this tree with terms replaced by their ids in the pool of an index
+     * @param index exact index over every term of this tree
+     * @return tree of pooled terms
+     */
+    public CompactBKTree<String> pool(CaseInsensitiveIndex<?> index) {
+        AliasPool pool = index.names();
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < ids.length; i++) {
+            String term = term(i).toString();
+            ids[i] = index.indexOf(term);
+            if (ids[i] < 0 || !pool.matches(ids[i], term))
+                throw new IllegalArgumentException("term not in pool: " + term);
+        }
+        return new CompactBKTree<String>(distance, null, pool, ids, share(keys.clone()), edges, children);
+    }
+
+    /**
+     * Replaces equal keys by one instance; phonetic encodings repeat heavily across terms
+     */
+    private static String[] share(String[] keys) {
+        Map<String, String> shared = new HashMap<String, String>();
+        for (int i = 0; i < keys.length; i++) {
+            String key = shared.get(keys[i]);
+            if (key == null)
+                shared.put(keys[i], keys[i]);
+            else
+                keys[i] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Writes this tree in the form read by {@link #read(DataInput, String, AliasPool)}.
+     * Terms are written as pool ids if this tree is pooled, otherwise as strings.
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(keys.length);
+        out.writeBoolean(pool != null);
+        for (int i = 0; i < keys.length; i++) {
+            if (pool != null)
+                out.writeInt(ids[i]);
+            else
+                out.writeUTF(terms[i].toString());
+            out.writeUTF(keys[i]);
+            out.writeInt(edges[i]);
+            out.writeInt(children[i]);
+        }
+        out.writeInt(children[keys.length]);
+    }
+
+    /**
+     * Reads a tree written by {@link #write(DataOutput)}, without recomputing keys or distances.
+     * @param in source
+     * @param comparator comparator the tree was built with
+     * @param pool pool the tree was built over, if it was written pooled
+     * @return tree of string terms
+     * @throws IOException if reading fails
+     */
+    public static CompactBKTree<String> read(DataInput in, String comparator, AliasPool pool) throws IOException {
+        int size = in.readInt();
+        boolean pooled = in.readBoolean();
+        if (pooled && pool == null)
+            throw new IOException("tree refers to an alias pool");
+        Object[] terms = pooled ? null : new Object[size];
+        int[] ids = pooled ? new int[size] : null;
+        String[] keys = new String[size];
+        int[] edges = new int[size];
+        int[] children = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            if (pooled) {
+                ids[i] = in.readInt();
+                if (ids[i] < 0 || ids[i] >= pool.size())
+                    throw new IOException("term id out of range: " + ids[i]);
+            } else {
+                terms[i] = in.readUTF();
+            }
+            keys[i] = in.readUTF();
+            edges[i] = in.readInt();
+            children[i] = in.readInt();
+        }
+        children[size] = in.readInt();
+        return new CompactBKTree<String>(new Distance(comparator), terms, pooled ? pool : null, ids, share(keys), edges, children);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E term(int node) {
+        return (E) (pool != null ? pool.get(ids[node]) : terms[node]);
+    }
+
+    /**
+     * Largest distance at node that can still lead to a child within radius of the query
+     */
+    private int bound(int node, int radius) {
+        int end = children[node + 1];
+        int maxScore = children[node] == end ? 0 : edges[end - 1];
+        if (!distance.isMetric() || radius > Integer.MAX_VALUE - maxScore)
+            return Integer.MAX_VALUE;
+        return radius + maxScore;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Match<E> findBestMatch(E term) {
+        Match<E> match = new Match<E>();
+        if (keys.length > 0)
+            findBestMatch(0, distance.encode(term), match);
+        return match;
+    }
+
+    private void findBestMatch(int node, String key, Match<E> match) {
+        int bound = bound(node, match.getDistance());
+        int distanceAtNode = distance.distance(key, keys[node], bound);
+        match.visit();
+        // only improvements are materialized
+        if (distanceAtNode < match.getDistance())
+            match.offer(term(node), distanceAtNode);
+        if (distanceAtNode > bound)
+            return;
+        for (int child = children[node]; child < children[node + 1]; child++) {
+            int score = edges[child];
+            int bestDistance = match.getDistance();
+            if (score >= distanceAtNode + bestDistance) {
+                if (distance.isMetric())
+                    break;
+                continue;
+            }
+            if (distance.isMetric() && score <= distanceAtNode - bestDistance)
+                continue;
+            findBestMatch(child, key, match);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E findBestWordMatch(E term) {
+        return findBestMatch(term).getTerm();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Match<E>> findBestMatches(E term, int limit, int maxDistance, final Comparator<? super E> order) {
+        final Comparator<Match<E>> ranking = new Comparator<Match<E>>() {
+            @Override
+            public int compare(Match<E> a, Match<E> b) {
+                if (a.getDistance() != b.getDistance())
+                    return a.getDistance() < b.getDistance() ? -1 : 1;
+                return order.compare(a.getTerm(), b.getTerm());
+            }
+        };
+        List<Match<E>> matches = new ArrayList<Match<E>>();
+        if (keys.length == 0 || limit < 1)
+            return matches;
+        PriorityQueue<Match<E>> heap = new PriorityQueue<Match<E>>(Math.min(limit, size()), Collections.reverseOrder(ranking));
+        findBestMatches(0, distance.encode(term), limit, maxDistance, ranking, heap);
+        matches.addAll(heap);
+        Collections.sort(matches, ranking);
+        return matches;
+    }
+
+    private void findBestMatches(int node, String key, int limit, int maxDistance, Comparator<Match<E>> ranking, PriorityQueue<Match<E>> heap) {
+        int radius = heap.size() < limit ? maxDistance : heap.peek().getDistance();
+        int bound = bound(node, radius);
+        int distanceAtNode = distance.distance(key, keys[node], bound);
+        if (distanceAtNode <= radius) {
+            Match<E> candidate = new Match<E>(term(node), distanceAtNode);
+            if (heap.size() < limit) {
+                heap.add(candidate);
+            } else if (ranking.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        if (distanceAtNode > bound)
+            return;
+        for (int child = children[node]; child < children[node + 1]; child++) {
+            int score = edges[child];
+            radius = heap.size() < limit ? maxDistance : heap.peek().getDistance();
+            if (score - distanceAtNode > radius) {
+                if (distance.isMetric())
+                    break;
+                continue;
+            }
+            if (distance.isMetric() && distanceAtNode - score > radius)
+                continue;
+            findBestMatches(child, key, limit, maxDistance, ranking, heap);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,100 @@
+package info.somethingodd.odditem.bktree;
+
+import org.apache.commons.codec.language.*;
+
+/**
+ * Wraps Apache commons-codec encoders and {@link LevenshteinDistance} behind a single comparator setting.
+ * Terms are encoded once with {@link #encode} and distances are calculated between encoded keys.
+ *
+ * @author Gordon Pettey
+ */
+class Distance {
+    private Caverphone2 c;
+    private ColognePhonetic k;
+    private final LevenshteinDistance l = new LevenshteinDistance();
+    private Metaphone m;
+    private RefinedSoundex r;
+    private Soundex s;
+
+    public Distance(String comparator) {
+        if (comparator.equals("c"))
+            this.c = new Caverphone2();
+        else if (comparator.equals("k"))
+            this.k = new ColognePhonetic();
+        else if (comparator.equals("m"))
+            this.m = new Metaphone();
+        else if (comparator.equals("s"))
+            this.s = new Soundex();
+        else
+            this.r = new RefinedSoundex();
+
+    }
+
+    /**
+     * Encodes a term once, so that distance calculations can work on precomputed keys
+     * @param term term to encode
+     * @return phonetic key, or the term itself for plain edit distance
+     */
+    public String encode(Object term) {
+        String x = (String) term;
+        if (c != null)
+            return c.encode(x);
+        if (k != null)
+            return k.encode(x);
+        if (m != null)
+            return m.encode(x);
+        if (r != null)
+            return r.encode(x);
+        if (s != null)
+            return s.encode(x);
+        return x;
+    }
+
+    /**
+     * Distance between two keys returned by {@link #encode}
+     * @param x encoded key
+     * @param y encoded key
+     * @return distance
+     */
+    public int distance(String x, String y) {
+        return distance(x, y, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Distance between two keys returned by {@link #encode}, giving up once it exceeds bound
+     * @param x encoded key
+     * @param y encoded key
+     * @param bound largest distance of interest, only honoured when {@link #isMetric()}
+     * @return distance, or some value greater than bound
+     */
+    public int distance(String x, String y, int bound) {
+        if (r != null || s != null)
+            return -difference(x, y);
+        return l.distance(x, y, bound);
+    }
+
+    /**
+     * Soundex scores are negated match counts, which do not obey the triangle inequality
+     * @return whether distances are edit distances, so that BK-tree bounds apply
+     */
+    public boolean isMetric() {
+        return r == null && s == null;
+    }
+
+    /**
+     * Soundex difference of two encoded keys, as in commons-codec's SoundexUtils.difference
+     * @param x encoded key
+     * @param y encoded key
+     * @return number of matching positions
+     */
+    private int difference(String x, String y) {
+        if (x == null || y == null)
+            return 0;
+        int length = Math.min(x.length(), y.length());
+        int difference = 0;
+        for (int i = 0; i < length; i++)
+            if (x.charAt(i) == y.charAt(i))
+                difference++;
+        return difference;
+    }
+}
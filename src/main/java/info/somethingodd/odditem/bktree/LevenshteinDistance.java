@@ -2,63 +2,156 @@ package info.somethingodd.odditem.bktree;
 
 /**
  * http://en.wikipedia.org/wiki/Levenshtein_distance
+ *
+ * Strings up to 64 characters use Myers' bit-parallel algorithm (as formulated by Hyyro);
+ * longer strings use two reusable rows. Buffers are kept per thread, so calls do not allocate.
  */
 
 public class LevenshteinDistance {
+    private static final int ASCII = 128;
 
-	public int distance(Object object1, Object object2) {
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
 
-		String string1 = (String) object1;
-		String string2 = (String) object2;
+    private static final class Workspace {
+        final long[] peq = new long[ASCII];
+        int[] previous = new int[65];
+        int[] current = new int[65];
 
-		int distance[][]; // distance matrix
-        int n; // length of first string
-        int m; // length of second string
-        int i; // iterates through first string
-        int j; // iterates through second string
-        char s_i; // ith character of first string
-        char t_j; // jth character of second string
-        int cost; // cost
+        void ensureRows(int length) {
+            if (previous.length < length) {
+                previous = new int[length];
+                current = new int[length];
+            }
+        }
+    }
 
-        // Step 1
-        n = string1.length();
-        m = string2.length();
-        if (n == 0)
-            return m;
+	public int distance(Object object1, Object object2) {
+        return distance((String) object1, (String) object2, Integer.MAX_VALUE);
+	}
+
+    /**
+     * Computes edit distance, giving up as soon as it is known to exceed bound
+     * @param string1 first string
+     * @param string2 second string
+     * @param bound largest distance of interest
+     * @return exact distance if it is at most bound, otherwise some value greater than bound
+     */
+    public int distance(CharSequence string1, CharSequence string2, int bound) {
+        int n = string1.length();
+        int m = string2.length();
+        // the shorter string becomes the pattern
+        if (n < m) {
+            CharSequence t = string1;
+            string1 = string2;
+            string2 = t;
+            n = m;
+            m = string2.length();
+        }
+        if (n - m > bound)
+            return exceeded(bound);
         if (m == 0)
             return n;
-        distance = new int[n+1][m+1];
-
-        // Step 2
-        for (i = 0; i <= n; i++)
-            distance[i][0] = i;
-        for (j = 0; j <= m; j++)
-            distance[0][j] = j;
+        if (m <= 64)
+            return myers(string2, string1, bound);
+        return rows(string1, string2, bound);
+    }
 
-        // Step 3
-        for (i = 1; i <= n; i++)
-        {
-            s_i = string1.charAt (i - 1);
+    private static int exceeded(int bound) {
+        return bound == Integer.MAX_VALUE ? bound : bound + 1;
+    }
 
-            // Step 4
-            for (j = 1; j <= m; j++)
-            {
-                t_j = string2.charAt(j - 1);
+    /**
+     * Bit-parallel edit distance; pattern length must be between 1 and 64
+     */
+    private int myers(CharSequence pattern, CharSequence text, int bound) {
+        Workspace workspace = WORKSPACE.get();
+        long[] peq = workspace.peq;
+        int m = pattern.length();
+        int n = text.length();
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII)
+                peq[c] |= 1L << i;
+        }
+        long last = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        int result = -1;
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(j);
+            long eq = c < ASCII ? peq[c] : match(pattern, c);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0)
+                score++;
+            else if ((mh & last) != 0)
+                score--;
+            // each remaining column lowers the score by at most one
+            if (score - (n - j - 1) > bound) {
+                result = exceeded(bound);
+                break;
+            }
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII)
+                peq[c] = 0L;
+        }
+        return result < 0 ? score : result;
+    }
 
-                // Step 5
-                if (s_i == t_j)
-                    cost = 0;
-                else
-                    cost = 1;
+    private static long match(CharSequence pattern, char c) {
+        long eq = 0L;
+        for (int i = 0; i < pattern.length(); i++)
+            if (pattern.charAt(i) == c)
+                eq |= 1L << i;
+        return eq;
+    }
 
-                // Step 6
-                distance[i][j] = findMinimum(distance[i-1][j]+1, distance[i][j-1]+1, distance[i-1][j-1] + cost);
+    /**
+     * Two-row dynamic programming; string2 must not be longer than string1
+     */
+    private int rows(CharSequence string1, CharSequence string2, int bound) {
+        int n = string1.length();
+        int m = string2.length();
+        Workspace workspace = WORKSPACE.get();
+        workspace.ensureRows(m + 1);
+        int[] previous = workspace.previous;
+        int[] current = workspace.current;
+        for (int j = 0; j <= m; j++)
+            previous[j] = j;
+        for (int i = 1; i <= n; i++) {
+            char s_i = string1.charAt(i - 1);
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = s_i == string2.charAt(j - 1) ? 0 : 1;
+                int value = findMinimum(previous[j] + 1, current[j - 1] + 1, previous[j - 1] + cost);
+                current[j] = value;
+                if (value < rowMinimum)
+                    rowMinimum = value;
             }
+            // values never decrease from one row to the next along any path
+            if (rowMinimum > bound)
+                return exceeded(bound);
+            int[] t = previous;
+            previous = current;
+            current = t;
         }
-
-        // Step 7
-        return distance[n][m];
-	}
+        return previous[m];
+    }
 
 	private int findMinimum(int a, int b, int c) {
         int min = a;
@@ -0,0 +1,61 @@
+package info.somethingodd.odditem.bktree;
+
+/**
+ * Result of a best-match search. Holds all per-query state, so searches
+ * over the same tree may run concurrently from any number of threads.
+ *
+ * @author Gordon Pettey
+ */
+public class Match<E> {
+    private E term;
+    private int distance = Integer.MAX_VALUE;
+    private int visited;
+
+    Match() {
+    }
+
+    Match(E term, int distance) {
+        this.term = term;
+        this.distance = distance;
+    }
+
+    /**
+     * @return closest term, or {@code null} if the tree is empty
+     */
+    public E getTerm() {
+        return term;
+    }
+
+    /**
+     * @return distance of the closest term, or {@link Integer#MAX_VALUE} if the tree is empty
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return number of nodes whose distance was calculated
+     */
+    public int getVisited() {
+        return visited;
+    }
+
+    void visit() {
+        visited++;
+    }
+
+    void visit(int count) {
+        visited += count;
+    }
+
+    void offer(E term, int distance) {
+        if (distance < this.distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+    }
+
+    public String toString() {
+        return "Match{term=" + term + ",distance=" + distance + ",visited=" + visited + "}";
+    }
+}
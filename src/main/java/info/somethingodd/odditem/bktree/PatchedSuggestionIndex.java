@@ -0,0 +1,152 @@
+package info.somethingodd.odditem.bktree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link SuggestionIndex} with terms added and removed after it was built,
+ * without rebuilding it. Added terms go into a small overlay tree; removed
+ * terms stay in the base index and are filtered out of its results. The overlay is
+ * a {@link TrigramIndex} when the base is one, otherwise a tree.
+ * Patching a patched index folds both sets of changes onto the original base,
+ * so the overlay never nests. Callers should rebuild from scratch once
+ * {@link #pending()} grows to a noticeable fraction of {@link #size()}.
+ *
+ * @author Gordon Pettey
+ */
+public class PatchedSuggestionIndex<E> implements SuggestionIndex<E> {
+    private static final Comparator<Object> UNORDERED = new Comparator<Object>() {
+        @Override
+        public int compare(Object a, Object b) {
+            return 0;
+        }
+    };
+
+    private final SuggestionIndex<E> base;
+    private final Set<E> removed;
+    private final List<E> added;
+    private final SuggestionIndex<E> overlay;
+
+    private PatchedSuggestionIndex(SuggestionIndex<E> base, Set<E> removed, List<E> added, String comparator) {
+        this.base = base;
+        this.removed = removed;
+        this.added = added;
+        if (TrigramIndex.COMPARATOR.equals(comparator)) {
+            this.overlay = new TrigramIndex<E>(added);
+        } else {
+            BKTree<E> overlay = new BKTree<E>(comparator);
+            for (E term : added)
+                overlay.add(term);
+            this.overlay = overlay.compact();
+        }
+    }
+
+    /**
+     * Returns index with terms added and removed
+     * @param index index to patch, which is not modified
+     * @param comparator comparator index was built with
+     * @param add terms not in index
+     * @param remove terms in index
+     * @return patched index
+     */
+    public static <E> PatchedSuggestionIndex<E> patch(SuggestionIndex<E> index, String comparator, Collection<E> add, Collection<E> remove) {
+        SuggestionIndex<E> base = index;
+        Set<E> removed = new HashSet<E>();
+        List<E> added = new ArrayList<E>();
+        if (index instanceof PatchedSuggestionIndex) {
+            PatchedSuggestionIndex<E> patched = (PatchedSuggestionIndex<E>) index;
+            base = patched.base;
+            removed.addAll(patched.removed);
+            added.addAll(patched.added);
+        }
+        for (E term : remove) {
+            if (!added.remove(term))
+                removed.add(term);
+        }
+        for (E term : add) {
+            // a term removed earlier and now restored is still in the base
+            if (!removed.remove(term))
+                added.add(term);
+        }
+        return new PatchedSuggestionIndex<E>(base, removed, added, comparator);
+    }
+
+    /**
+     * @return number of terms added or removed since the base index was built
+     */
+    public int pending() {
+        return removed.size() + added.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Match<E> findBestMatch(E term) {
+        Match<E> match = base.findBestMatch(term);
+        if (match.getTerm() != null && removed.contains(match.getTerm())) {
+            // one of the best removed.size() + 1 base terms is live, and none is closer than it
+            Match<E> live = new Match<E>();
+            live.visit(match.getVisited());
+            for (Match<E> candidate : base.findBestMatches(term, removed.size() + 1, Integer.MAX_VALUE, UNORDERED)) {
+                if (!removed.contains(candidate.getTerm())) {
+                    live.offer(candidate.getTerm(), candidate.getDistance());
+                    break;
+                }
+            }
+            match = live;
+        }
+        Match<E> other = overlay.findBestMatch(term);
+        match.visit(other.getVisited());
+        if (other.getTerm() != null)
+            match.offer(other.getTerm(), other.getDistance());
+        return match;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E findBestWordMatch(E term) {
+        return findBestMatch(term).getTerm();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Match<E>> findBestMatches(E term, int limit, int maxDistance, final Comparator<? super E> order) {
+        List<Match<E>> matches = new ArrayList<Match<E>>();
+        if (limit < 1)
+            return matches;
+        // removed terms may take up to removed.size() of the base's places
+        int baseLimit = limit > Integer.MAX_VALUE - removed.size() ? Integer.MAX_VALUE : limit + removed.size();
+        for (Match<E> match : base.findBestMatches(term, baseLimit, maxDistance, order)) {
+            if (!removed.contains(match.getTerm()))
+                matches.add(match);
+        }
+        matches.addAll(overlay.findBestMatches(term, limit, maxDistance, order));
+        Collections.sort(matches, new Comparator<Match<E>>() {
+            @Override
+            public int compare(Match<E> a, Match<E> b) {
+                if (a.getDistance() != b.getDistance())
+                    return a.getDistance() < b.getDistance() ? -1 : 1;
+                return order.compare(a.getTerm(), b.getTerm());
+            }
+        });
+        return matches.size() > limit ? new ArrayList<Match<E>>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return base.size() - removed.size() + added.size();
+    }
+}
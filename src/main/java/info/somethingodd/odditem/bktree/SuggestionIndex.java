@@ -0,0 +1,41 @@
+package info.somethingodd.odditem.bktree;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read side of a fuzzy-matching structure. Implementations must allow
+ * concurrent searches once built.
+ *
+ * @author Gordon Pettey
+ */
+public interface SuggestionIndex<E> {
+    /**
+     * Attempts to find the closest match to the search term.
+     * @param term search term
+     * @return the closest match and its distance
+     */
+    Match<E> findBestMatch(E term);
+
+    /**
+     * Attempts to find the closest match to the search term.
+     * @param term search term
+     * @return closest term, or {@code null} if empty
+     */
+    E findBestWordMatch(E term);
+
+    /**
+     * Finds up to limit terms within maxDistance of the search term.
+     * @param term search term
+     * @param limit maximum number of matches
+     * @param maxDistance largest distance to accept
+     * @param order tie-breaker for matches at equal distance
+     * @return matches ordered by distance, then by order
+     */
+    List<Match<E>> findBestMatches(E term, int limit, int maxDistance, Comparator<? super E> order);
+
+    /**
+     * @return number of terms
+     */
+    int size();
+}
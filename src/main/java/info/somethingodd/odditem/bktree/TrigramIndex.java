@@ -0,0 +1,458 @@
+package info.somethingodd.odditem.bktree;
+
+import info.somethingodd.odditem.util.AliasPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * {@link SuggestionIndex} over character trigrams, selected with comparator {@value #COMPARATOR}.
+ *
+ * Terms are case-folded and padded with two boundary marks on each side, and
+ * every distinct trigram has a posting list of the ids of the terms containing
+ * it, in ascending order. A query merges the posting lists of its own trigrams,
+ * counting how many each term shares, and verifies candidates with exact edit
+ * distance in descending order of that count. One edit changes at most three
+ * trigrams, so a term sharing c of the query's g trigrams is at least
+ * (g - c) / 3 edits away, rounded up; verification stops as soon as no
+ * remaining candidate can beat the results. Terms sharing no trigram with the
+ * query come last, at least g / 3 edits away, and are scanned only while that
+ * could still beat the results, so every search is exact, like a BK-tree's.
+ * The scan skips terms whose sets of characters differ from the query's by
+ * more kinds than the results allow.
+ * Distances are plain edit distances of folded terms.
+ *
+ * @author Gordon Pettey
+ */
+public class TrigramIndex<E> implements SuggestionIndex<E> {
+    /**
+     * Comparator setting that selects this index
+     */
+    public static final String COMPARATOR = "t";
+    private static final int Q = 3;
+    private static final char BOUNDARY = '\u0000';
+
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+    private final AliasPool terms;
+    private final long[] grams;
+    private final int[] offsets;
+    private final int[] postings;
+    private final long[] kinds;
+
+    /**
+     * Constructor
+     * @param terms terms to index, which are returned as strings
+     */
+    public TrigramIndex(Collection<? extends E> terms) {
+        this(pool(terms));
+    }
+
+    /**
+     * Constructor sharing an existing pool
+     * @param terms terms to index, by id
+     */
+    public TrigramIndex(AliasPool terms) {
+        this.terms = terms;
+        int count = 0;
+        for (int id = 0; id < terms.size(); id++)
+            count += terms.length(id) + Q - 1;
+        long[] all = new long[count];
+        int[] starts = new int[terms.size() + 1];
+        kinds = new long[terms.size()];
+        for (int id = 0; id < terms.size(); id++) {
+            kinds[id] = kinds(new Folded(terms, id));
+            long[] termGrams = grams(new Folded(terms, id));
+            System.arraycopy(termGrams, 0, all, starts[id], termGrams.length);
+            starts[id + 1] = starts[id] + termGrams.length;
+        }
+        long[] distinct = Arrays.copyOf(all, starts[terms.size()]);
+        Arrays.sort(distinct);
+        int n = 0;
+        for (int i = 0; i < distinct.length; i++)
+            if (n == 0 || distinct[n - 1] != distinct[i])
+                distinct[n++] = distinct[i];
+        grams = Arrays.copyOf(distinct, n);
+        // count, then fill; terms are visited in id order, so every posting list ends up ascending
+        int[] indices = new int[starts[terms.size()]];
+        offsets = new int[n + 1];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = Arrays.binarySearch(grams, all[i]);
+            offsets[indices[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++)
+            offsets[i + 1] += offsets[i];
+        int[] next = Arrays.copyOf(offsets, n);
+        postings = new int[indices.length];
+        for (int id = 0; id < terms.size(); id++)
+            for (int i = starts[id]; i < starts[id + 1]; i++)
+                postings[next[indices[i]]++] = id;
+    }
+
+    private static AliasPool pool(Collection<?> terms) {
+        String[] names = new String[terms.size()];
+        int i = 0;
+        for (Object term : terms)
+            names[i++] = term.toString();
+        return new AliasPool(names);
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Distinct padded trigrams of a folded term, sorted
+     */
+    private static long[] grams(CharSequence folded) {
+        int length = folded.length();
+        long[] grams = new long[length + Q - 1];
+        for (int i = 0; i < grams.length; i++) {
+            long gram = 0;
+            for (int j = i - (Q - 1); j <= i; j++)
+                gram = (gram << 16) | (j < 0 || j >= length ? BOUNDARY : folded.charAt(j));
+            grams[i] = gram;
+        }
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++)
+            if (n == 0 || grams[n - 1] != grams[i])
+                grams[n++] = grams[i];
+        return n == grams.length ? grams : Arrays.copyOf(grams, n);
+    }
+
+    /**
+     * Set of the kinds of characters in a folded term, 64 kinds by the low bits of each character
+     */
+    private static long kinds(CharSequence folded) {
+        long kinds = 0;
+        for (int i = 0; i < folded.length(); i++)
+            kinds |= 1L << (folded.charAt(i) & 63);
+        return kinds;
+    }
+
+    /**
+     * Smallest edit distance possible between terms of these kinds of characters; one edit adds at most one kind
+     * and removes at most one
+     */
+    private static int lowerBound(long queryKinds, long termKinds) {
+        return Math.max(Long.bitCount(queryKinds & ~termKinds), Long.bitCount(termKinds & ~queryKinds));
+    }
+
+    @SuppressWarnings("unchecked")
+    private E term(int id) {
+        return (E) terms.get(id);
+    }
+
+    /**
+     * Smallest edit distance possible for a term sharing shared of a query's queryGrams trigrams
+     */
+    private static int lowerBound(int queryGrams, int shared) {
+        return (queryGrams - shared + Q - 1) / Q;
+    }
+
+    /**
+     * Merges the posting lists of a query's trigrams
+     */
+    private Candidates candidates(String folded, int minimumShared) {
+        long[] queryGrams = grams(folded);
+        int[] lists = new int[queryGrams.length];
+        int n = 0;
+        for (long gram : queryGrams) {
+            int i = Arrays.binarySearch(grams, gram);
+            if (i >= 0)
+                lists[n++] = i;
+        }
+        Candidates candidates = new Candidates(folded, queryGrams.length);
+        // k-way merge on a binary heap of list positions ordered by their current id
+        int[] positions = new int[n];
+        int[] heap = new int[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            positions[i] = offsets[lists[i]];
+            heap[size] = i;
+            siftUp(heap, size++, positions);
+        }
+        int current = -1;
+        int shared = 0;
+        while (size > 0) {
+            int list = heap[0];
+            int id = postings[positions[list]];
+            if (id != current) {
+                if (shared >= minimumShared)
+                    candidates.add(current, shared);
+                current = id;
+                shared = 0;
+            }
+            shared++;
+            if (++positions[list] == offsets[lists[list] + 1])
+                heap[0] = heap[--size];
+            siftDown(heap, size, positions);
+        }
+        if (current >= 0 && shared >= minimumShared)
+            candidates.add(current, shared);
+        return candidates;
+    }
+
+    private void siftUp(int[] heap, int i, int[] positions) {
+        int list = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (postings[positions[heap[parent]]] <= postings[positions[list]])
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = list;
+    }
+
+    private void siftDown(int[] heap, int size, int[] positions) {
+        if (size == 0)
+            return;
+        int list = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && postings[positions[heap[child + 1]]] < postings[positions[heap[child]]])
+                child++;
+            if (postings[positions[list]] <= postings[positions[heap[child]]])
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Match<E> findBestMatch(E term) {
+        Match<E> match = new Match<E>();
+        if (terms.size() == 0)
+            return match;
+        Candidates candidates = candidates(fold(term.toString()), 1);
+        Folded folded = new Folded(terms, 0);
+        for (int shared = candidates.queryGrams; shared >= 0; shared--) {
+            // ties keep the first match, so only a strictly smaller distance counts
+            if (lowerBound(candidates.queryGrams, shared) >= match.getDistance())
+                break;
+            if (shared > 0) {
+                for (int i = candidates.start(shared); i < candidates.end(shared); i++)
+                    verify(candidates.query, folded, candidates.ids[i], match);
+            } else {
+                long[] seen = candidates.mask(terms.size());
+                long kinds = kinds(candidates.query);
+                for (int id = 0; id < terms.size(); id++)
+                    if ((seen[id >>> 6] & (1L << id)) == 0 && lowerBound(kinds, this.kinds[id]) < match.getDistance())
+                        verify(candidates.query, folded, id, match);
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Offers one term to a best-match search
+     */
+    private void verify(String query, Folded folded, int id, Match<E> match) {
+        folded.id = id;
+        if (Math.abs(folded.length() - query.length()) >= match.getDistance())
+            return;
+        int bound = match.getDistance() == Integer.MAX_VALUE ? Integer.MAX_VALUE : match.getDistance() - 1;
+        int distance = levenshtein.distance(query, folded, bound);
+        match.visit();
+        if (distance < match.getDistance())
+            match.offer(term(id), distance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E findBestWordMatch(E term) {
+        return findBestMatch(term).getTerm();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Match<E>> findBestMatches(E term, int limit, int maxDistance, final Comparator<? super E> order) {
+        final Comparator<Match<E>> ranking = new Comparator<Match<E>>() {
+            @Override
+            public int compare(Match<E> a, Match<E> b) {
+                if (a.getDistance() != b.getDistance())
+                    return a.getDistance() < b.getDistance() ? -1 : 1;
+                return order.compare(a.getTerm(), b.getTerm());
+            }
+        };
+        List<Match<E>> matches = new ArrayList<Match<E>>();
+        if (terms.size() == 0 || limit < 1 || maxDistance < 0)
+            return matches;
+        String query = fold(term.toString());
+        int queryGrams = grams(query).length;
+        // fewer shared trigrams than this cannot be within maxDistance; 0 admits terms sharing none
+        int minimumShared = maxDistance >= lowerBound(queryGrams, 0) ? 0 : queryGrams - Q * maxDistance;
+        Candidates candidates = candidates(query, Math.max(1, minimumShared));
+        PriorityQueue<Match<E>> heap = new PriorityQueue<Match<E>>(Math.min(limit, size()), Collections.reverseOrder(ranking));
+        Folded folded = new Folded(terms, 0);
+        for (int shared = candidates.queryGrams; shared >= minimumShared; shared--) {
+            int radius = heap.size() < limit ? maxDistance : heap.peek().getDistance();
+            // an equal distance may still win on order
+            if (lowerBound(candidates.queryGrams, shared) > radius)
+                break;
+            if (shared > 0) {
+                for (int i = candidates.start(shared); i < candidates.end(shared); i++)
+                    rank(query, folded, candidates.ids[i], limit, maxDistance, ranking, heap);
+            } else {
+                long[] seen = candidates.mask(terms.size());
+                long kinds = kinds(query);
+                for (int id = 0; id < terms.size(); id++)
+                    if ((seen[id >>> 6] & (1L << id)) == 0 && lowerBound(kinds, this.kinds[id]) <= (heap.size() < limit ? maxDistance : heap.peek().getDistance()))
+                        rank(query, folded, id, limit, maxDistance, ranking, heap);
+            }
+        }
+        matches.addAll(heap);
+        Collections.sort(matches, ranking);
+        return matches;
+    }
+
+    /**
+     * Offers one term to a top-k search, keeping the heap at no more than limit of the best matches
+     */
+    private void rank(String query, Folded folded, int id, int limit, int maxDistance, Comparator<Match<E>> ranking, PriorityQueue<Match<E>> heap) {
+        folded.id = id;
+        int radius = heap.size() < limit ? maxDistance : heap.peek().getDistance();
+        if (Math.abs(folded.length() - query.length()) > radius)
+            return;
+        int distance = levenshtein.distance(query, folded, radius);
+        if (distance > radius)
+            return;
+        Match<E> candidate = new Match<E>(term(id), distance);
+        if (heap.size() < limit) {
+            heap.add(candidate);
+        } else if (ranking.compare(candidate, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    private static String fold(String s) {
+        char[] chars = new char[s.length()];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = fold(s.charAt(i));
+        return new String(chars);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return terms.size();
+    }
+
+    /**
+     * Candidate ids of one query, grouped by the number of trigrams they share with it
+     */
+    private static final class Candidates {
+        final String query;
+        final int queryGrams;
+        int[] ids = new int[16];
+        int[] shared = new int[16];
+        int size;
+        private int[] starts;
+
+        Candidates(String query, int queryGrams) {
+            this.query = query;
+            this.queryGrams = queryGrams;
+        }
+
+        void add(int id, int count) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                shared = Arrays.copyOf(shared, size * 2);
+            }
+            ids[size] = id;
+            shared[size++] = count;
+        }
+
+        /**
+         * Stable counting sort of ids by shared count, keeping ids ascending within a count
+         */
+        private void group() {
+            starts = new int[queryGrams + 2];
+            for (int i = 0; i < size; i++)
+                starts[shared[i] + 1]++;
+            for (int i = 0; i <= queryGrams; i++)
+                starts[i + 1] += starts[i];
+            int[] next = Arrays.copyOf(starts, queryGrams + 1);
+            int[] grouped = new int[size];
+            for (int i = 0; i < size; i++)
+                grouped[next[shared[i]]++] = ids[i];
+            ids = grouped;
+        }
+
+        /**
+         * @param count number of terms
+         * @return bit set of the candidate ids
+         */
+        long[] mask(int count) {
+            long[] mask = new long[(count + 63) >>> 6];
+            for (int i = 0; i < size; i++)
+                mask[ids[i] >>> 6] |= 1L << ids[i];
+            return mask;
+        }
+
+        int start(int count) {
+            if (starts == null)
+                group();
+            return starts[count];
+        }
+
+        int end(int count) {
+            if (starts == null)
+                group();
+            return starts[count + 1];
+        }
+    }
+
+    /**
+     * Folded view of a pooled term, repointed at each candidate instead of materializing it
+     */
+    private static final class Folded implements CharSequence {
+        private final AliasPool pool;
+        int id;
+
+        Folded(AliasPool pool, int id) {
+            this.pool = pool;
+            this.id = id;
+        }
+
+        @Override
+        public int length() {
+            return pool.length(id);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return fold(pool.charAt(id, index));
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return TrigramIndex.fold(pool.get(id));
+        }
+    }
+}
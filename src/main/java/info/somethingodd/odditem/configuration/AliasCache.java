@@ -0,0 +1,190 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.configuration;
+
+import info.somethingodd.odditem.bktree.CompactBKTree;
+import info.somethingodd.odditem.bktree.TrigramIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of {@link Aliases}, stored next to items.yml so a restart with unchanged sources skips YAML parsing
+ * and suggestion tree construction. The file holds the aliases of each item in the order items.yml lists them and
+ * the flattened suggestion tree, if any, whose terms are ids into the alias pool, behind a key hashed from everything
+ * they were built from. It is decoded in one buffered sequential pass and closed before {@link #read()} returns, so
+ * a later {@link #write(Map, Aliases)} can replace it on any platform; any mismatch or damage makes
+ * {@link #read()} return {@code null}.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class AliasCache {
+    private static final int MAGIC = 0x4F494458;
+    private static final int VERSION = 3;
+
+    private final File file;
+    private final String comparator;
+    private final int maxBlockId;
+    private final byte[] key;
+
+    /**
+     * Constructor
+     * @param file cache file
+     * @param comparator suggestion comparator
+     * @param maxBlockId maximum block ID
+     * @param key hash of the sources, from {@link #key(String, int, InputStream...)}
+     */
+    public AliasCache(File file, String comparator, int maxBlockId, byte[] key) {
+        this.file = file;
+        this.comparator = comparator;
+        this.maxBlockId = maxBlockId;
+        this.key = key;
+    }
+
+    /**
+     * Hashes everything the aliases are built from
+     * @param comparator suggestion comparator
+     * @param maxBlockId maximum block ID
+     * @param sources YAML sources, {@code null} entries are skipped; all are closed
+     * @return key
+     * @throws IOException if a source cannot be read
+     */
+    public static byte[] key(String comparator, int maxBlockId, InputStream... sources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digest.update((VERSION + ";" + comparator + ";" + maxBlockId + ";").getBytes("UTF-8"));
+        byte[] buffer = new byte[8192];
+        for (InputStream source : sources) {
+            if (source == null)
+                continue;
+            try {
+                int n;
+                while ((n = source.read(buffer)) > 0)
+                    digest.update(buffer, 0, n);
+            } finally {
+                source.close();
+            }
+            digest.update((byte) 0);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Reads aliases if the file exists and was written for the same key
+     * @return aliases or {@code null}
+     */
+    public Aliases read() {
+        if (!file.isFile())
+            return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+            if (in.readInt() != MAGIC)
+                return null;
+            byte[] stored = new byte[in.readUnsignedByte()];
+            in.readFully(stored);
+            if (!Arrays.equals(stored, key))
+                return null;
+            Aliases.Parsed parsed = new Aliases.Parsed(maxBlockId);
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                ItemTemplate itemTemplate = new ItemTemplate(in.readInt(), in.readShort(), in.readInt());
+                int count = in.readInt();
+                List<String> keyAliases = new ArrayList<String>(count);
+                for (int j = 0; j < count; j++)
+                    keyAliases.add(in.readUTF());
+                parsed.add(itemTemplate, keyAliases);
+            }
+            // trigram indexes are not stored; building one is a single linear pass
+            return new Aliases(parsed, in.readBoolean() ? CompactBKTree.read(in, comparator, parsed.pool()) : null, comparator);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            try {
+                if (in != null)
+                    in.close();
+            } catch (IOException e) {
+                // nothing was written
+            }
+        }
+    }
+
+    /**
+     * Writes aliases, replacing the file only once it is complete
+     * @param serialized serialized form the aliases were built from
+     * @param aliases aliases built from serialized, with a compact suggestion tree
+     * @throws IOException if writing fails
+     */
+    @SuppressWarnings("unchecked")
+    public void write(Map<String, Object> serialized, Aliases aliases) throws IOException {
+        boolean tree = aliases.getSuggestions() instanceof CompactBKTree;
+        if (!tree && !(aliases.getSuggestions() instanceof TrigramIndex))
+            throw new IOException("suggestion index is neither compact nor trigram");
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(key.length);
+            out.write(key);
+            List<ItemTemplate> itemTemplates = new ArrayList<ItemTemplate>(serialized.size());
+            List<Collection<String>> keyAliases = new ArrayList<Collection<String>>(serialized.size());
+            for (String itemKey : serialized.keySet()) {
+                ItemTemplate itemTemplate = ItemTemplate.valueOf(itemKey);
+                if (itemTemplate == null)
+                    continue;
+                itemTemplates.add(itemTemplate);
+                keyAliases.add((Collection<String>) serialized.get(itemKey));
+            }
+            out.writeInt(itemTemplates.size());
+            for (int i = 0; i < itemTemplates.size(); i++) {
+                ItemTemplate itemTemplate = itemTemplates.get(i);
+                out.writeInt(itemTemplate.getTypeId());
+                out.writeShort(itemTemplate.getDurability());
+                out.writeInt(itemTemplate.getAmount());
+                out.writeInt(keyAliases.get(i).size());
+                for (String alias : keyAliases.get(i))
+                    out.writeUTF(alias);
+            }
+            out.writeBoolean(tree);
+            if (tree)
+                ((CompactBKTree<String>) aliases.getSuggestions()).write(out);
+        } catch (IOException e) {
+            out.close();
+            temp.delete();
+            throw e;
+        }
+        out.close();
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -16,90 +16,272 @@ package info.somethingodd.odditem.configuration;
 import info.somethingodd.odditem.Configuration;
 import info.somethingodd.odditem.OddItem;
 import info.somethingodd.odditem.bktree.BKTree;
+import info.somethingodd.odditem.bktree.PatchedSuggestionIndex;
+import info.somethingodd.odditem.bktree.SuggestionIndex;
+import info.somethingodd.odditem.bktree.TrigramIndex;
+import info.somethingodd.odditem.util.AliasPool;
+import info.somethingodd.odditem.util.AlphanumComparator;
+import info.somethingodd.odditem.util.CaseInsensitiveIndex;
+import info.somethingodd.odditem.util.ItemKey;
+import info.somethingodd.odditem.util.ItemKeyMap;
+import info.somethingodd.odditem.util.PrefixIndex;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
+ * Frozen alias tables. Every alias is stored once, in an {@link AliasPool} with ids in alphanumeric order;
+ * the exact, reverse, prefix and suggestion indexes refer to aliases by id, and Strings are only materialized
+ * for callers.
+ *
  * @author Gordon Pettey (petteyg359@gmail.com)
  */
 public class Aliases implements ConfigurationSerializable {
-    private final BKTree<String> suggestions;
-    private final Map<String, ItemStack> items;
-    private final Map<ItemStack, Set<String>> aliases;
+    /**
+     * Rebuild suggestions from scratch once patches add or remove more than 1/REBUILD_FRACTION of the aliases
+     */
+    private static final int REBUILD_FRACTION = 8;
+
+    private final SuggestionIndex<String> suggestions;
+    private final AliasPool names;
+    private final ItemTemplate[] items;
+    private final CaseInsensitiveIndex<ItemTemplate> index;
+    private final ItemKeyMap<Collection<String>> aliases;
+    private final PrefixIndex prefixes;
+    private final String comparator;
+    private final int maxBlockId;
 
     public Aliases(Map<String, Object> serialized) {
-        suggestions = new BKTree<String>(Configuration.getComparator());
-        items = Collections.synchronizedMap(new TreeMap<String, ItemStack>(OddItem.ALPHANUM_COMPARATOR));
-        aliases = Collections.synchronizedMap(new TreeMap<ItemStack, Set<String>>(OddItem.ITEM_STACK_COMPARATOR));
-        for (String key : serialized.keySet()) {
-            ItemStack itemStack = stringToItemStack(key);
-            Collection<String> names = (Collection<String>) serialized.get(key);
-            if (aliases.get(itemStack) == null)
-                aliases.put(itemStack, new TreeSet<String>(OddItem.ALPHANUM_COMPARATOR));
-            aliases.get(itemStack).addAll(names);
-            for (String alias : names) {
-                items.put(alias, itemStack);
-                suggestions.add(alias);
-            }
+        this(serialized, Configuration.getComparator(), Configuration.getMaxBlockId());
+    }
+
+    /**
+     * Constructor independent of the loaded configuration
+     * @param serialized serialized aliases
+     * @param comparator suggestion comparator
+     * @param maxBlockId maximum block ID
+     */
+    public Aliases(Map<String, Object> serialized, String comparator, int maxBlockId) {
+        this(new Parsed(serialized, maxBlockId), null, comparator);
+    }
+
+    /**
+     * Constructor
+     * @param parsed alias tables
+     * @param suggestions index over the parsed aliases, or {@code null} to build one
+     * @param comparator comparator suggestions were or will be built with
+     */
+    Aliases(Parsed parsed, SuggestionIndex<String> suggestions, String comparator) {
+        this.comparator = comparator;
+        maxBlockId = parsed.maxBlockId;
+        String[] sorted = parsed.sorted();
+        names = parsed.pool();
+        items = new ItemTemplate[sorted.length];
+        for (int id = 0; id < sorted.length; id++)
+            items[id] = parsed.items.get(sorted[id]);
+        index = new CaseInsensitiveIndex<ItemTemplate>(names, items);
+        aliases = new ItemKeyMap<Collection<String>>(maxBlockId);
+        for (int itemKey : parsed.names.keys()) {
+            Set<String> keyAliases = parsed.names.get(itemKey);
+            int[] ids = new int[keyAliases.size()];
+            int n = 0;
+            for (String alias : keyAliases)
+                ids[n++] = index.indexOf(alias);
+            // ids follow alphanumeric order, as the names did
+            Arrays.sort(ids);
+            aliases.put(itemKey, names.view(ids));
+        }
+        prefixes = new PrefixIndex(names);
+        if (suggestions == null && TrigramIndex.COMPARATOR.equals(comparator)) {
+            suggestions = new TrigramIndex<String>(names);
+        } else if (suggestions == null) {
+            BKTree<String> tree = new BKTree<String>(comparator);
+            for (String alias : parsed.order)
+                tree.add(alias);
+            suggestions = tree.compact().pool(index);
         }
+        this.suggestions = suggestions;
     }
 
     /**
-     * Returns a {@link String} representation of an {@link ItemStack}
-     * @param itemStack source
-     * @return {@link String} in form "id;durability"
+     * Alias tables read from serialized form, before any index is built
      */
-    private String itemStackToString(ItemStack itemStack) {
-        return new StringBuilder().append(itemStack.getTypeId() + ";" + itemStack.getDurability()).toString();
+    static class Parsed {
+        final Map<String, ItemTemplate> items = new HashMap<String, ItemTemplate>();
+        final int maxBlockId;
+        final ItemKeyMap<Set<String>> names;
+        final List<String> order = new ArrayList<String>();
+        private String[] sorted;
+        private AliasPool pool;
+
+        Parsed(int maxBlockId) {
+            this.maxBlockId = maxBlockId;
+            names = new ItemKeyMap<Set<String>>(maxBlockId);
+        }
+
+        Parsed(Map<String, Object> serialized, int maxBlockId) {
+            this(maxBlockId);
+            for (String key : serialized.keySet()) {
+                ItemTemplate itemTemplate = ItemTemplate.valueOf(key);
+                if (itemTemplate == null)
+                    continue;
+                add(itemTemplate, (Collection<String>) serialized.get(key));
+            }
+        }
+
+        /**
+         * Sorts aliases on precomputed keys instead of comparing strings per insert
+         * @return aliases in alphanumeric order
+         */
+        String[] sorted() {
+            if (sorted == null) {
+                sorted = items.keySet().toArray(new String[items.size()]);
+                AlphanumComparator.sort(sorted);
+            }
+            return sorted;
+        }
+
+        /**
+         * @return aliases packed in alphanumeric order, so that ids are identical for identical tables
+         */
+        AliasPool pool() {
+            if (pool == null)
+                pool = new AliasPool(sorted());
+            return pool;
+        }
+
+        /**
+         * Adds the aliases of one item
+         * @param itemTemplate item
+         * @param keyAliases its aliases, in the order listed
+         */
+        void add(ItemTemplate itemTemplate, Collection<String> keyAliases) {
+            int itemKey = itemTemplate.getKey();
+            if (names.get(itemKey) == null)
+                names.put(itemKey, new HashSet<String>());
+            names.get(itemKey).addAll(keyAliases);
+            for (String alias : keyAliases) {
+                items.put(alias, itemTemplate);
+                order.add(alias);
+            }
+        }
     }
 
     /**
-     * Returns an {@link ItemStack} given a {@link String} representation
-     * @param string in form "id;durability"
-     * @return {@link ItemStack} or {@code null} if no matching item
+     * Builds aliases from serialized form, reusing this instance's suggestion index for aliases present in both.
+     * Only added and removed aliases are applied to it, which avoids rebuilding it for small edits.
+     * @param serialized new serialized aliases
+     * @return new aliases, or this if nothing changed
      */
-    private ItemStack stringToItemStack(String string) {
-        int typeId;
-        short damage;
-        try {
-            if (string.contains(";")) {
-                typeId = Integer.valueOf(string.substring(0, string.indexOf(";")));
-                damage = Short.valueOf(string.substring(string.indexOf(";") + 1));
-            } else {
-                typeId = Integer.valueOf(string);
-                damage = 0;
+    public Aliases patch(Map<String, Object> serialized) {
+        Parsed parsed = new Parsed(serialized, maxBlockId);
+        List<String> added = new ArrayList<String>();
+        List<String> removed = new ArrayList<String>();
+        boolean changed = false;
+        // both sides are in alphanumeric order, so one merge pass finds every difference
+        String[] sorted = parsed.sorted();
+        int oldId = 0;
+        int newId = 0;
+        String oldAlias = oldId < items.length ? names.get(oldId) : null;
+        while (oldAlias != null || newId < sorted.length) {
+            int result = oldAlias == null ? 1 : newId == sorted.length ? -1 : OddItem.ALPHANUM_COMPARATOR.compare(oldAlias, sorted[newId]);
+            if (result < 0) {
+                removed.add(oldAlias);
+            } else if (result > 0) {
+                added.add(sorted[newId]);
+            } else if (!items[oldId].equals(parsed.items.get(sorted[newId]))) {
+                changed = true;
             }
-            return new ItemStack(typeId, 1, damage);
-        } catch (NumberFormatException e) {
-            return null;
+            if (result <= 0)
+                oldAlias = ++oldId < items.length ? names.get(oldId) : null;
+            if (result >= 0)
+                newId++;
         }
+        if (added.isEmpty() && removed.isEmpty() && !changed)
+            return this;
+        PatchedSuggestionIndex<String> patched = PatchedSuggestionIndex.patch(suggestions, comparator, added, removed);
+        return new Aliases(parsed, patched.pending() * REBUILD_FRACTION > patched.size() ? null : patched, comparator);
     }
 
+    /**
+     * Returns aliases of the item represented by an {@link ItemStack}
+     * @param itemStack item to look up
+     * @return unmodifiable {@link Collection} of aliases or {@code null}
+     */
     public Collection<String> getAliases(ItemStack itemStack) {
-        return aliases.get(itemStack);
+        return aliases.get(ItemKey.of(itemStack));
     }
 
     /**
-     * Returns an {@link ItemStack} matching query
+     * Returns a new {@link ItemStack} matching query, ignoring case if there is no exact match
      * @param query alias
      * @return {@link ItemStack} matching query or {@code null}
      */
     public ItemStack getItemStack(String query) {
-        return items.get(query);
+        ItemTemplate itemTemplate = index.get(query);
+        return itemTemplate == null ? null : itemTemplate.toItemStack();
+    }
+
+    /**
+     * Returns the {@link ItemTemplate} matching query, ignoring case if there is no exact match
+     * @param query alias
+     * @return {@link ItemTemplate} matching query or {@code null}
+     */
+    public ItemTemplate getTemplate(String query) {
+        return index.get(query);
+    }
+
+    /**
+     * Returns the {@link ItemTemplate} matching query like {@link #getTemplate(String)}, counting the outcome
+     * @param query alias
+     * @param listener told the outcome of the lookup
+     * @return {@link ItemTemplate} matching query or {@code null}
+     */
+    public ItemTemplate getTemplate(String query, LookupListener listener) {
+        return getTemplate(query, null, listener);
+    }
+
+    /**
+     * Returns the {@link ItemTemplate} matching query here or, failing that, in fallback, counting the outcome once
+     * @param query alias
+     * @param fallback aliases to try next, may be null
+     * @param listener told the outcome of the lookup
+     * @return {@link ItemTemplate} matching query or {@code null}
+     */
+    public ItemTemplate getTemplate(String query, Aliases fallback, LookupListener listener) {
+        int id = index.indexOf(query);
+        if (id < 0 && fallback != null)
+            return fallback.getTemplate(query, listener);
+        listener.lookup(id >= 0, id >= 0 && names.matches(id, query));
+        return id < 0 ? null : items[id];
+    }
+
+    /**
+     * Returns aliases beginning with prefix, ignoring case
+     * @param prefix start of alias
+     * @param limit maximum number of aliases, at most {@link PrefixIndex#TOP}
+     * @return up to limit aliases in alphanumeric order
+     */
+    public List<String> getAliasesByPrefix(String prefix, int limit) {
+        return prefixes.startingWith(prefix, limit);
     }
 
     /**
      * @return number of aliases loaded
      */
     public int aliasCount() {
-        return items.size();
+        return items.length;
     }
 
     /**
@@ -109,15 +291,44 @@ public class Aliases implements ConfigurationSerializable {
         return aliases.size();
     }
 
-    protected Map<ItemStack, Set<String>> getAliases() {
-        return Collections.synchronizedMap(Collections.unmodifiableMap(aliases));
+    /**
+     * Counts how aliases differ from an earlier load
+     * @param previous earlier aliases, may be null
+     * @return {added, removed, remapped to another item}
+     */
+    public int[] changesSince(Aliases previous) {
+        if (previous == null) return new int[] {items.length, 0, 0};
+        int added = 0;
+        int changed = 0;
+        for (int id = 0; id < items.length; id++) {
+            ItemTemplate old = previous.exact(names.get(id));
+            if (old == null) added++;
+            else if (!old.equals(items[id])) changed++;
+        }
+        return new int[] {added, previous.items.length - (items.length - added), changed};
+    }
+
+    private ItemTemplate exact(String alias) {
+        int id = index.indexOf(alias);
+        return id >= 0 && names.matches(id, alias) ? items[id] : null;
     }
 
-    protected Map<String, ItemStack> getItems() {
-        return Collections.synchronizedMap(Collections.unmodifiableMap(items));
+    protected ItemKeyMap<Collection<String>> getAliases() {
+        return aliases;
     }
 
-    public BKTree<String> getSuggestions() {
+    /**
+     * Materializes every alias; meant for inspection, not lookups
+     * @return unmodifiable map of alias to item, in alphanumeric order
+     */
+    protected Map<String, ItemTemplate> getItems() {
+        Map<String, ItemTemplate> map = new LinkedHashMap<String, ItemTemplate>(items.length * 4 / 3 + 1);
+        for (int id = 0; id < items.length; id++)
+            map.put(names.get(id), items[id]);
+        return Collections.unmodifiableMap(map);
+    }
+
+    public SuggestionIndex<String> getSuggestions() {
         return suggestions;
     }
 
@@ -126,7 +337,7 @@ public class Aliases implements ConfigurationSerializable {
         str.append("{");
         str.append("aliases=").append(aliases.toString());
         str.append(",");
-        str.append("items=").append(items.toString());
+        str.append("items=").append(getItems().toString());
         str.append("}\n");
         return str.toString();
     }
@@ -134,8 +345,8 @@ public class Aliases implements ConfigurationSerializable {
     @Override
     public Map<String, Object> serialize() {
         Map<String, Object> serialized = new TreeMap<String, Object>(OddItem.ALPHANUM_COMPARATOR);
-        for (ItemStack itemStack : aliases.keySet()) {
-            serialized.put(itemStackToString(itemStack), aliases.get(itemStack).toArray());
+        for (int itemKey : aliases.keys()) {
+            serialized.put(ItemKey.toString(itemKey), aliases.get(itemKey).toArray());
         }
         return serialized;
     }
@@ -150,7 +361,8 @@ public class Aliases implements ConfigurationSerializable {
 
     public int hashCode() {
         int hash = 17;
-        hash += items.hashCode();
+        hash += names.hashCode();
+        hash += Arrays.hashCode(items);
         hash += aliases.hashCode();
         return hash;
     }
@@ -158,7 +370,19 @@ public class Aliases implements ConfigurationSerializable {
     public boolean equals(Object other) {
         if (!(other instanceof Aliases)) return false;
         if (this == other) return true;
-        if (!getItems().equals(((Aliases) other).getItems())) return false;
-        return getAliases().equals(((Aliases) other).getAliases());
+        Aliases that = (Aliases) other;
+        if (!names.equals(that.names) || !Arrays.equals(items, that.items)) return false;
+        return aliases.equals(that.aliases);
+    }
+
+    /**
+     * Receives the outcome of {@link #getTemplate(String, Aliases, LookupListener)}
+     */
+    public interface LookupListener {
+        /**
+         * @param found whether the alias exists
+         * @param exact whether it matched without folding case
+         */
+        void lookup(boolean found, boolean exact);
     }
-}
\ No newline at end of file
+}
@@ -16,7 +16,6 @@ package info.somethingodd.odditem.configuration;
 import info.somethingodd.odditem.OddItem;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.MemorySection;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.inventory.ItemStack;
 
@@ -37,10 +36,39 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
     private List<ItemStack> itemStacks;
     private List<String> items;
     private Map<String, Object> data;
+    private GroupData compiled;
     private Set<String> aliases;
 
-    public Group(Map<String, Object> serialized) {
+    /**
+     * Constructor resolving items against the aliases currently loaded
+     * @param serialized group section of groups.yml
+     * @throws IllegalStateException if aliases have not finished loading
+     */
+    public Group(Map<String, Object> serialized) throws IllegalStateException {
+        this(serialized, null);
+    }
+
+    /**
+     * Constructor
+     * @param serialized group section of groups.yml
+     * @param resolver aliases to resolve items against, or {@code null} for those currently loaded
+     * @throws IllegalStateException if resolver is {@code null} and aliases have not finished loading
+     */
+    public Group(Map<String, Object> serialized, Aliases resolver) throws IllegalStateException {
+        this(serialized, resolver, null);
+    }
+
+    /**
+     * Constructor
+     * @param serialized group section of groups.yml
+     * @param resolver aliases to resolve items against, or {@code null} for those currently loaded
+     * @param unresolved collects items that do not resolve, instead of logging each one; may be {@code null}
+     */
+    Group(Map<String, Object> serialized, Aliases resolver, Collection<String> unresolved) {
+        if (resolver == null && !OddItem.isLoaded())
+            throw new IllegalStateException("OddItem has not finished loading");
         data = ((ConfigurationSection) serialized.get("data")).getValues(false);
+        compiled = new GroupData(data);
         items = (List<String>) serialized.get("items");
         itemStacks = new ArrayList<ItemStack>();
         aliases = new TreeSet<String>(OddItem.ALPHANUM_COMPARATOR);
@@ -51,19 +79,39 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
             ItemStack itemStack;
             try {
                 if (item.contains(",")) {
-                    itemStack = OddItem.getItemStack(item.substring(0, item.indexOf(",")));
-                    itemStack.setAmount(Integer.valueOf(item.substring(item.indexOf(",") + 1)));
+                    itemStack = getItemStack(resolver, item.substring(0, item.indexOf(",")));
+                    if (itemStack != null)
+                        itemStack.setAmount(Integer.valueOf(item.substring(item.indexOf(",") + 1)));
                 } else {
-                    itemStack = OddItem.getItemStack(item);
-                    itemStack.setAmount(1);
+                    itemStack = getItemStack(resolver, item);
+                    if (itemStack != null)
+                        itemStack.setAmount(1);
                 }
+            } catch (NumberFormatException e2) {
+                itemStack = null;
+            }
+            if (itemStack != null)
                 itemStacks.add(itemStack);
-            } catch (IllegalArgumentException e2) {
+            else if (unresolved != null)
+                unresolved.add(item);
+            else
                 Bukkit.getLogger().warning("Invalid item \"" + item + "\" in groups.yml (" + items.toString() + ")");
-            }
         }
     }
 
+    /**
+     * Resolves an item name by exact or case-insensitive alias, without searching for a closest match
+     * @param resolver aliases to resolve against, or {@code null} for those currently loaded
+     * @param name item name
+     * @return new {@link ItemStack}, or {@code null} if there is no such item
+     */
+    private static ItemStack getItemStack(Aliases resolver, String name) {
+        if (resolver != null)
+            return resolver.getItemStack(name);
+        ItemTemplate itemTemplate = OddItem.getTemplate(name, null);
+        return itemTemplate == null ? null : itemTemplate.toItemStack();
+    }
+
     /**
      * Gets all aliases for the group
      * @return Collection of aliases
@@ -86,9 +134,8 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return data
      */
     public Object getData(String key) {
-        if (!data.containsKey(key))
-            return null;
-        return data.get(key);
+        GroupData.Value value = compiled.get(key);
+        return value == null ? null : value.object;
     }
 
     /**
@@ -98,10 +145,8 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return data
      */
     public Object getData(String key, String key2) {
-        ConfigurationSection configurationSection = (ConfigurationSection) getData(key);
-        if (configurationSection == null)
-            return null;
-        return configurationSection.get(key2);
+        GroupData.Value value = compiled.get(key, key2);
+        return value == null ? null : value.object;
     }
 
     /**
@@ -123,13 +168,36 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
         return (Integer) getData(key, key2);
     }
 
+    /**
+     * Get {@code int} by path, without boxing
+     * @param path top-level key, or keys joined by '.'
+     * @param def value if path is missing or not a number
+     * @return data
+     */
+    public int getInt(String path, int def) {
+        GroupData.Value value = compiled.getPath(path);
+        return value != null && value.number ? value.intValue : def;
+    }
+
+    /**
+     * Get {@code int} by second-level key, without boxing
+     * @param key top-level key
+     * @param key2 second-level key
+     * @param def value if key2 is missing or not a number
+     * @return data
+     */
+    public int getInt(String key, String key2, int def) {
+        GroupData.Value value = compiled.get(key, key2);
+        return value != null && value.number ? value.intValue : def;
+    }
+
     /**
      * Get {@code String} by key
      * @param key top-level key
      * @return data
      */
     public String getString(String key) {
-        return (String) data.get(key);
+        return (String) getData(key);
     }
 
     /**
@@ -148,7 +216,7 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return data
      */
     public List<String> getStringList(String key) {
-        return (List<String>) data.get(key);
+        return (List<String>) getData(key);
     }
 
     /**
@@ -167,6 +235,9 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return data
      */
     public double getDouble(String key) {
+        GroupData.Value value = compiled.get(key);
+        if (value != null && value.object instanceof Double)
+            return value.doubleValue;
         return (Double) getData(key);
     }
 
@@ -177,9 +248,35 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return data
      */
     public double getDouble(String key, String key2) {
+        GroupData.Value value = compiled.get(key, key2);
+        if (value != null && value.object instanceof Double)
+            return value.doubleValue;
         return (Double) getData(key, key2);
     }
 
+    /**
+     * Get {@code double} by path, without boxing
+     * @param path top-level key, or keys joined by '.'
+     * @param def value if path is missing or not a number
+     * @return data
+     */
+    public double getDouble(String path, double def) {
+        GroupData.Value value = compiled.getPath(path);
+        return value != null && value.number ? value.doubleValue : def;
+    }
+
+    /**
+     * Get {@code double} by second-level key, without boxing
+     * @param key top-level key
+     * @param key2 second-level key
+     * @param def value if key2 is missing or not a number
+     * @return data
+     */
+    public double getDouble(String key, String key2, double def) {
+        GroupData.Value value = compiled.get(key, key2);
+        return value != null && value.number ? value.doubleValue : def;
+    }
+
     /**
      * Get {@code ConfigurationSection} by second-level key
      * @param key top-level key
@@ -195,10 +292,7 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return whether group contains data key
      */
     public boolean match(String key) {
-        for (String k : data.keySet())
-            if (k.equals(key))
-                return true;
-        return false;
+        return compiled.get(key) != null;
     }
 
     /**
@@ -208,15 +302,23 @@ public class Group implements ConfigurationSerializable, Iterable<ItemStack> {
      * @return whether group contains key2 inside key1 in data
      */
     public boolean match(String key, String key2) {
-        for (Object x : data.values()) {
-            if (x instanceof MemorySection)
-                return ((MemorySection) x).getValues(false).containsKey("key2");
-            if (x instanceof Map)
-                return ((Map) x).containsKey(key2);
-            if (x instanceof List)
-                return ((List) x).contains(key2);
-        }
-        return false;
+        return getSubKeys(key).contains(key2);
+    }
+
+    /**
+     * Gets the second-level keys under a top-level data key: the keys of a section or map, or the elements of a list
+     * @param key top-level key
+     * @return second-level keys, empty if there are none
+     */
+    Collection<?> getSubKeys(String key) {
+        Object x = data.get(key);
+        if (x instanceof ConfigurationSection)
+            return ((ConfigurationSection) x).getKeys(false);
+        if (x instanceof Map)
+            return ((Map<?, ?>) x).keySet();
+        if (x instanceof List)
+            return (List<?>) x;
+        return Collections.emptySet();
     }
 
     /**
@@ -0,0 +1,111 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.configuration;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Group data compiled once at load into an immutable table keyed by path ("key", "key.key2", ...).
+ * Numbers are stored unboxed next to the original value, and each section keeps its own children,
+ * so reads are one or two hash lookups with no casting, boxing or {@link ConfigurationSection} path walking.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class GroupData {
+    private final Map<String, Value> paths = new HashMap<String, Value>();
+    private final Map<String, Value> roots;
+
+    /**
+     * Constructor
+     * @param data top-level group data
+     */
+    GroupData(Map<String, Object> data) {
+        roots = compile(null, data);
+    }
+
+    private Map<String, Value> compile(String prefix, Map<?, ?> section) {
+        Map<String, Value> children = new HashMap<String, Value>();
+        for (Map.Entry<?, ?> entry : section.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            String path = prefix == null ? key : prefix + "." + key;
+            Object object = entry.getValue();
+            Map<String, Value> grandchildren = null;
+            if (object instanceof ConfigurationSection)
+                grandchildren = compile(path, ((ConfigurationSection) object).getValues(false));
+            else if (object instanceof Map)
+                grandchildren = compile(path, (Map<?, ?>) object);
+            Value value = new Value(object, grandchildren);
+            children.put(key, value);
+            paths.put(path, value);
+        }
+        return Collections.unmodifiableMap(children);
+    }
+
+    /**
+     * Gets value by top-level key
+     * @param key top-level key
+     * @return value or {@code null}
+     */
+    Value get(String key) {
+        return roots.get(key);
+    }
+
+    /**
+     * Gets value by second-level key
+     * @param key top-level key
+     * @param key2 second-level key, or a deeper path below key
+     * @return value or {@code null}
+     */
+    Value get(String key, String key2) {
+        Value parent = roots.get(key);
+        if (parent == null || parent.children == null)
+            return null;
+        Value value = parent.children.get(key2);
+        if (value == null && key2.indexOf('.') >= 0)
+            value = paths.get(key + "." + key2);
+        return value;
+    }
+
+    /**
+     * Gets value by path
+     * @param path keys joined by '.'
+     * @return value or {@code null}
+     */
+    Value getPath(String path) {
+        return paths.get(path);
+    }
+
+    /**
+     * One compiled data value
+     */
+    static final class Value {
+        final Object object;
+        final boolean number;
+        final int intValue;
+        final double doubleValue;
+        final Map<String, Value> children;
+
+        Value(Object object, Map<String, Value> children) {
+            this.object = object;
+            this.children = children;
+            number = object instanceof Number;
+            intValue = number ? ((Number) object).intValue() : 0;
+            doubleValue = number ? ((Number) object).doubleValue() : 0;
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -33,12 +34,25 @@ import java.util.TreeSet;
 public class Groups implements ConfigurationSerializable {
     private final Map<String, Group> groups;
     private final Map<Group, Set<String>> aliases;
+    private final Set<String> unresolved;
+    private final Map<String, Collection<Group>> byKey;
+    private final Map<String, Map<String, Collection<Group>>> byKey2;
 
     public Groups(Map<String, Object> serialized) {
+        this(serialized, null);
+    }
+
+    /**
+     * Constructor
+     * @param serialized groups section of groups.yml
+     * @param items aliases to resolve group items against, or {@code null} for those currently loaded
+     */
+    public Groups(Map<String, Object> serialized, Aliases items) {
         aliases = new HashMap<Group, Set<String>>();
         groups = new TreeMap<String, Group>(OddItem.ALPHANUM_COMPARATOR);
+        Set<String> unresolved = new TreeSet<String>(OddItem.ALPHANUM_COMPARATOR);
         for (String key : serialized.keySet()) {
-            Group group = Group.valueOf(((ConfigurationSection) serialized.get(key)).getValues(false));
+            Group group = new Group(((ConfigurationSection) serialized.get(key)).getValues(false), items, unresolved);
             if (aliases.get(group) == null)
                 aliases.put(group, new TreeSet<String>(OddItem.ALPHANUM_COMPARATOR));
             aliases.get(group).addAll(((ConfigurationSection) serialized.get(key)).getStringList("aliases"));
@@ -47,6 +61,36 @@ public class Groups implements ConfigurationSerializable {
                 groups.put(alias, group);
             }
         }
+        this.unresolved = Collections.unmodifiableSet(unresolved);
+        Map<String, Set<Group>> byKey = new HashMap<String, Set<Group>>();
+        Map<String, Map<String, Set<Group>>> byKey2 = new HashMap<String, Map<String, Set<Group>>>();
+        for (Group group : aliases.keySet()) {
+            for (String key : group.getData().keySet()) {
+                add(byKey, key, group);
+                if (byKey2.get(key) == null)
+                    byKey2.put(key, new HashMap<String, Set<Group>>());
+                for (Object key2 : group.getSubKeys(key))
+                    if (key2 instanceof String)
+                        add(byKey2.get(key), (String) key2, group);
+            }
+        }
+        this.byKey = freeze(byKey);
+        this.byKey2 = new HashMap<String, Map<String, Collection<Group>>>();
+        for (Map.Entry<String, Map<String, Set<Group>>> entry : byKey2.entrySet())
+            this.byKey2.put(entry.getKey(), freeze(entry.getValue()));
+    }
+
+    private static void add(Map<String, Set<Group>> index, String key, Group group) {
+        if (index.get(key) == null)
+            index.put(key, new HashSet<Group>());
+        index.get(key).add(group);
+    }
+
+    private static Map<String, Collection<Group>> freeze(Map<String, Set<Group>> index) {
+        Map<String, Collection<Group>> frozen = new HashMap<String, Collection<Group>>();
+        for (Map.Entry<String, Set<Group>> entry : index.entrySet())
+            frozen.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        return frozen;
     }
 
     /**
@@ -63,6 +107,14 @@ public class Groups implements ConfigurationSerializable {
         return groups.size();
     }
 
+    /**
+     * Gets group items that matched no alias when the groups were loaded
+     * @return unmodifiable items, as written in groups.yml, in alphanumeric order
+     */
+    public Collection<String> getUnresolved() {
+        return unresolved;
+    }
+
     /**
      * Gets an Group by alias
      * @param alias group alias to retrieve
@@ -75,28 +127,23 @@ public class Groups implements ConfigurationSerializable {
     /**
      * Checks for groups containing data key
      * @param key data key to check
-     * @return Collection of groups containing key
+     * @return unmodifiable Collection of groups containing key
      */
     public Collection<Group> getGroups(String key) {
-        Collection<Group> groups = new HashSet<Group>();
-        for (Group group : this.groups.values())
-            if (group.match(key))
-                groups.add(group);
-        return groups;
+        Collection<Group> groups = byKey.get(key);
+        return groups == null ? Collections.<Group>emptySet() : groups;
     }
 
     /**
      * Checks for groups containing second-level data key
      * @param key top-level key to check
      * @param key2 second-level key to check
-     * @return Collection of groups containing keys
+     * @return unmodifiable Collection of groups containing keys
      */
     public Collection<Group> getGroups(String key, String key2) {
-        Collection<Group> groups = new HashSet<Group>();
-        for (Group group : this.groups.values())
-            if (group.match(key, key2))
-                groups.add(group);
-        return groups;
+        Map<String, Collection<Group>> byKey2 = this.byKey2.get(key);
+        Collection<Group> groups = byKey2 == null ? null : byKey2.get(key2);
+        return groups == null ? Collections.<Group>emptySet() : groups;
     }
 
     @Override
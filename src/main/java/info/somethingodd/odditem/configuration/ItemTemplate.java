@@ -0,0 +1,120 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.configuration;
+
+import info.somethingodd.odditem.util.ItemKey;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Immutable description of an aliased item. Safe to share between threads; hands out a fresh {@link ItemStack} per call.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class ItemTemplate {
+    private final int typeId;
+    private final short durability;
+    private final int amount;
+
+    /**
+     * Constructor
+     * @param typeId item type ID
+     * @param durability item durability
+     * @param amount default amount
+     */
+    public ItemTemplate(int typeId, short durability, int amount) {
+        this.typeId = typeId;
+        this.durability = durability;
+        this.amount = amount;
+    }
+
+    /**
+     * Returns an {@link ItemTemplate} given a {@link String} representation
+     * @param string in form "id;durability"
+     * @return {@link ItemTemplate} of amount 1, or {@code null} if string is malformed
+     */
+    public static ItemTemplate valueOf(String string) {
+        int typeId;
+        short durability;
+        try {
+            if (string.contains(";")) {
+                typeId = Integer.valueOf(string.substring(0, string.indexOf(";")));
+                durability = Short.valueOf(string.substring(string.indexOf(";") + 1));
+            } else {
+                typeId = Integer.valueOf(string);
+                durability = 0;
+            }
+            return new ItemTemplate(typeId, durability, 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return item type ID
+     */
+    public int getTypeId() {
+        return typeId;
+    }
+
+    /**
+     * @return item durability
+     */
+    public short getDurability() {
+        return durability;
+    }
+
+    /**
+     * @return default amount
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return packed {@link ItemKey}
+     */
+    public int getKey() {
+        return ItemKey.of(typeId, durability);
+    }
+
+    /**
+     * @return new {@link ItemStack} of the default amount
+     */
+    public ItemStack toItemStack() {
+        return toItemStack(amount);
+    }
+
+    /**
+     * @param amount stack size
+     * @return new {@link ItemStack} of the given amount
+     */
+    public ItemStack toItemStack(int amount) {
+        return new ItemStack(typeId, amount, durability);
+    }
+
+    public int hashCode() {
+        return 31 * getKey() + amount;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof ItemTemplate)) return false;
+        if (this == other) return true;
+        ItemTemplate that = (ItemTemplate) other;
+        return typeId == that.typeId && durability == that.durability && amount == that.amount;
+    }
+
+    public String toString() {
+        return ItemKey.toString(getKey());
+    }
+}
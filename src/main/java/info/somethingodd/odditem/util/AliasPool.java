@@ -0,0 +1,168 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable pool of names packed end to end in one array, addressed by int id in the order given.
+ * Names are stored one byte per character when every character is Latin-1 and as chars otherwise, with one
+ * offset table, so a pool costs about one or two bytes per character plus four per name instead of a String
+ * each. Names are only materialized as Strings by {@link #get(int)} and by {@link #view(int[])} element access.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class AliasPool {
+    private final byte[] latin1;
+    private final char[] chars;
+    private final int[] offsets;
+
+    /**
+     * Constructor
+     * @param names names; the id of each is its index
+     */
+    public AliasPool(String[] names) {
+        offsets = new int[names.length + 1];
+        boolean narrow = true;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            offsets[i + 1] = offsets[i] + name.length();
+            for (int j = 0; narrow && j < name.length(); j++)
+                narrow = name.charAt(j) <= 0xFF;
+        }
+        int length = offsets[names.length];
+        if (narrow) {
+            latin1 = new byte[length];
+            chars = null;
+            for (int i = 0; i < names.length; i++)
+                for (int j = 0, o = offsets[i]; j < names[i].length(); j++)
+                    latin1[o + j] = (byte) names[i].charAt(j);
+        } else {
+            latin1 = null;
+            chars = new char[length];
+            for (int i = 0; i < names.length; i++)
+                names[i].getChars(0, names[i].length(), chars, offsets[i]);
+        }
+    }
+
+    /**
+     * @return number of names
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param id name id
+     * @return length of the name
+     */
+    public int length(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * @param id name id
+     * @param index character index within the name
+     * @return character of the name
+     */
+    public char charAt(int id, int index) {
+        int i = offsets[id] + index;
+        return latin1 != null ? (char) (latin1[i] & 0xFF) : chars[i];
+    }
+
+    /**
+     * Materializes a name
+     * @param id name id
+     * @return new String
+     */
+    public String get(int id) {
+        int offset = offsets[id];
+        int length = offsets[id + 1] - offset;
+        if (chars != null)
+            return new String(chars, offset, length);
+        char[] name = new char[length];
+        for (int i = 0; i < length; i++)
+            name[i] = (char) (latin1[offset + i] & 0xFF);
+        return new String(name);
+    }
+
+    /**
+     * Compares a name to a String without materializing it
+     * @param id name id
+     * @param s String to compare
+     * @return whether the name equals s
+     */
+    public boolean matches(int id, String s) {
+        int offset = offsets[id];
+        if (offsets[id + 1] - offset != s.length())
+            return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = latin1 != null ? (char) (latin1[offset + i] & 0xFF) : chars[offset + i];
+            if (c != s.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unmodifiable list of names, materializing each only when it is read
+     * @param ids name ids, not copied
+     * @return view of the names
+     */
+    public List<String> view(int[] ids) {
+        return new View(ids);
+    }
+
+    public int hashCode() {
+        return 31 * Arrays.hashCode(offsets) + (latin1 != null ? Arrays.hashCode(latin1) : Arrays.hashCode(chars));
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof AliasPool)) return false;
+        if (this == other) return true;
+        AliasPool that = (AliasPool) other;
+        return Arrays.equals(offsets, that.offsets) && Arrays.equals(latin1, that.latin1) && Arrays.equals(chars, that.chars);
+    }
+
+    private final class View extends AbstractList<String> implements RandomAccess {
+        private final int[] ids;
+
+        View(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public String get(int index) {
+            return AliasPool.this.get(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String))
+                return false;
+            for (int id : ids)
+                if (AliasPool.this.matches(id, (String) o))
+                    return true;
+            return false;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package info.somethingodd.odditem.util;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
 /**
@@ -27,8 +28,21 @@ import java.util.Comparator;
  * <p/>
  * This is an updated version with enhancements made by Daniel Migowski,
  * Andre Bogus, and David Koelle
+ * <p/>
+ * Chunks are compared in place, so {@link #compare} does not allocate. For sets of names
+ * that are sorted or compared many times, {@link #sortKey} precomputes a key per name whose
+ * plain lexicographic order, see {@link #compareSortKeys}, is the same as this comparator's.
  */
 public class AlphanumComparator implements Comparator<String> {
+    /**
+     * Sort key character that starts a numerical chunk. Alphabetical characters are stored plus one, so this sits
+     * where '0' would, between the characters below and above the digits, as a digit compares in {@link #compare}.
+     */
+    private static final char NUMBER = '0' + 1;
+    /**
+     * Sort key character that ends an alphabetical chunk, so a shorter chunk sorts before a longer one
+     */
+    private static final char END = 0;
 
     /**
      * Determines if character is a numerical digit.
@@ -36,42 +50,23 @@ public class AlphanumComparator implements Comparator<String> {
      * @param ch character to check
      * @return whether ch is a numerical digit
      */
-    private final boolean isDigit(char ch) {
+    private static boolean isDigit(char ch) {
         return ch >= 48 && ch <= 57;
     }
 
     /**
-     * Gets a numerical or alphabetical chunk for comparison
+     * Finds the end of the numerical or alphabetical chunk starting at marker
      *
      * @param s mixed String
      * @param marker starting position
-     * @return chunk of s
+     * @return position after the chunk
      */
-    private final String getChunk(String s, int marker) {
-        StringBuilder chunk = new StringBuilder();
-        char c = s.charAt(marker);
-        chunk.append(c);
+    private static int chunkEnd(String s, int marker) {
+        boolean digit = isDigit(s.charAt(marker));
         marker++;
-        if (isDigit(c)) {
-            while (marker < s.length()) {
-                c = s.charAt(marker);
-                if (!isDigit(c)) {
-                    break;
-                }
-                chunk.append(c);
-                marker++;
-            }
-        } else {
-            while (marker < s.length()) {
-                c = s.charAt(marker);
-                if (isDigit(c)) {
-                    break;
-                }
-                chunk.append(c);
-                marker++;
-            }
-        }
-        return chunk.toString();
+        while (marker < s.length() && isDigit(s.charAt(marker)) == digit)
+            marker++;
+        return marker;
     }
 
     /**
@@ -82,32 +77,94 @@ public class AlphanumComparator implements Comparator<String> {
         int thisMarker = 0;
         int thatMarker = 0;
         while (thisMarker < o1.length() && thatMarker < o2.length()) {
-            String thisChunk = getChunk(o1, thisMarker);
-            thisMarker += thisChunk.length();
-            String thatChunk = getChunk(o2, thatMarker);
-            thatMarker += thatChunk.length();
+            int thisEnd = chunkEnd(o1, thisMarker);
+            int thatEnd = chunkEnd(o2, thatMarker);
+            int thisChunkLength = thisEnd - thisMarker;
+            int thatChunkLength = thatEnd - thatMarker;
             // If both chunks contain numeric characters, sort them numerically
-            int result = 0;
-            if (isDigit(thisChunk.charAt(0)) && isDigit(thatChunk.charAt(0))) {
+            if (isDigit(o1.charAt(thisMarker)) && isDigit(o2.charAt(thatMarker))) {
                 // Simple chunk comparison by length.
-                int thisChunkLength = thisChunk.length();
-                result = thisChunkLength - thatChunk.length();
-                // If equal, the first different number counts
-                if (result == 0) {
-                    for (int i = 0; i < thisChunkLength; i++) {
-                        result = thisChunk.charAt(i) - thatChunk.charAt(i);
-                        if (result != 0) {
-                            return result;
-                        }
-                    }
-                }
-            } else {
-                result = thisChunk.compareTo(thatChunk);
+                if (thisChunkLength != thatChunkLength)
+                    return thisChunkLength - thatChunkLength;
             }
-            if (result != 0) {
-                return result;
+            // The first different character counts, then the shorter chunk
+            int length = Math.min(thisChunkLength, thatChunkLength);
+            for (int i = 0; i < length; i++) {
+                int result = o1.charAt(thisMarker + i) - o2.charAt(thatMarker + i);
+                if (result != 0)
+                    return result;
             }
+            if (thisChunkLength != thatChunkLength)
+                return thisChunkLength - thatChunkLength;
+            thisMarker = thisEnd;
+            thatMarker = thatEnd;
         }
         return o1.length() - o2.length();
     }
+
+    /**
+     * Computes a sort key for s. Numerical chunks become {@link #NUMBER}, their length, then their digits;
+     * alphabetical chunks become their characters plus one, then {@link #END}. Names containing U+FFFF are not supported.
+     *
+     * @param s mixed String
+     * @return key ordered like s under {@link #compare}
+     */
+    public static char[] sortKey(String s) {
+        StringBuilder key = new StringBuilder(s.length() + 8);
+        int marker = 0;
+        while (marker < s.length()) {
+            int end = chunkEnd(s, marker);
+            if (isDigit(s.charAt(marker))) {
+                key.append(NUMBER).append((char) (end - marker)).append(s, marker, end);
+            } else {
+                for (int i = marker; i < end; i++)
+                    key.append((char) (s.charAt(i) + 1));
+                key.append(END);
+            }
+            marker = end;
+        }
+        char[] chars = new char[key.length()];
+        key.getChars(0, chars.length, chars, 0);
+        return chars;
+    }
+
+    /**
+     * Compares two keys from {@link #sortKey}
+     *
+     * @param a first key
+     * @param b second key
+     * @return negative, zero or positive as for the Strings the keys came from
+     */
+    public static int compareSortKeys(char[] a, char[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i])
+                return a[i] - b[i];
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Sorts strings in the order of this comparator, computing each sort key once
+     *
+     * @param strings strings to sort in place
+     */
+    public static void sort(String[] strings) {
+        final char[][] keys = new char[strings.length][];
+        Integer[] order = new Integer[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            keys[i] = sortKey(strings[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareSortKeys(keys[a], keys[b]);
+            }
+        });
+        String[] sorted = new String[strings.length];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = strings[order[i]];
+        System.arraycopy(sorted, 0, strings, 0, sorted.length);
+    }
 }
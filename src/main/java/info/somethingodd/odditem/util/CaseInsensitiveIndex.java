@@ -0,0 +1,159 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.Map;
+
+/**
+ * Immutable open-addressing hash index from name to value, hashed on case-folded characters.
+ * A single probe sequence answers both exact and case-insensitive lookups: an exact match wins,
+ * then an all-lowercase name, then any other name differing only in case. Lookups do not allocate.
+ * Names live in an {@link AliasPool} and are found by id; the table itself only holds ids and hashes.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class CaseInsensitiveIndex<V> {
+    private final AliasPool names;
+    private final Object[] values;
+    private final int[] slots;
+    private final int[] hashes;
+    private final boolean[] lowerCase;
+
+    /**
+     * Constructor
+     * @param entries names and values to index
+     */
+    public CaseInsensitiveIndex(Map<String, ? extends V> entries) {
+        this(new AliasPool(entries.keySet().toArray(new String[entries.size()])), entries.values().toArray());
+    }
+
+    /**
+     * Constructor
+     * @param names names to index
+     * @param values value of each name, by id; not copied
+     */
+    public CaseInsensitiveIndex(AliasPool names, Object[] values) {
+        this.names = names;
+        this.values = values;
+        int capacity = 16;
+        while (capacity < names.size() * 2)
+            capacity <<= 1;
+        // slots hold id + 1, so that 0 marks a free slot
+        slots = new int[capacity];
+        hashes = new int[capacity];
+        lowerCase = new boolean[names.size()];
+        int mask = capacity - 1;
+        for (int id = 0; id < names.size(); id++) {
+            int hash = hash(id);
+            int i = hash & mask;
+            while (slots[i] != 0)
+                i = (i + 1) & mask;
+            slots[i] = id + 1;
+            hashes[i] = hash;
+            boolean lower = true;
+            for (int j = 0; lower && j < names.length(id); j++)
+                lower = Character.toLowerCase(names.charAt(id, j)) == names.charAt(id, j);
+            lowerCase[id] = lower;
+        }
+    }
+
+    private int hash(int id) {
+        int h = 0;
+        for (int i = 0; i < names.length(id); i++)
+            h = 31 * h + Character.toLowerCase(names.charAt(id, i));
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++)
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        return h ^ (h >>> 16);
+    }
+
+    private boolean equalsFolded(int id, String s) {
+        if (names.length(id) != s.length())
+            return false;
+        for (int i = 0; i < s.length(); i++) {
+            char x = names.charAt(id, i);
+            char y = s.charAt(i);
+            if (x != y && Character.toLowerCase(x) != Character.toLowerCase(y))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the id of query
+     * @param query name to look up
+     * @return id, or -1 if not found
+     */
+    public int indexOf(String query) {
+        int hash = hash(query);
+        int mask = slots.length - 1;
+        int found = -1;
+        for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+            if (hashes[i] != hash)
+                continue;
+            int id = slots[i] - 1;
+            if (names.matches(id, query))
+                return id;
+            if ((found < 0 || (!lowerCase[found] && lowerCase[id])) && equalsFolded(id, query))
+                found = id;
+        }
+        return found;
+    }
+
+    /**
+     * @param id id returned by {@link #indexOf}
+     * @return new String holding the name
+     */
+    public String nameAt(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @param id id returned by {@link #indexOf}
+     * @return value of the name
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int id) {
+        return (V) values[id];
+    }
+
+    /**
+     * Gets value for query, ignoring case if there is no exact match
+     * @param query name to look up
+     * @return value or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String query) {
+        int id = indexOf(query);
+        return id < 0 ? null : (V) values[id];
+    }
+
+    /**
+     * @return names indexed
+     */
+    public AliasPool names() {
+        return names;
+    }
+
+    /**
+     * @return number of names indexed
+     */
+    public int size() {
+        return names.size();
+    }
+}
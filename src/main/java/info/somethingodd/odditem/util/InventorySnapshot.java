@@ -0,0 +1,144 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Item totals of an inventory at one point in time, counted once into primitive tables keyed by {@link ItemKey}.
+ * Each query afterwards is O(1), except enchantment-sensitive queries for enchanted items, which scan only the enchanted stacks.
+ * Later changes to the inventory are not reflected.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class InventorySnapshot {
+    private final ItemHistogram byItem;
+    private final ItemHistogram byType;
+    private final ItemHistogram plainByItem;
+    private final ItemHistogram plainByType;
+    private final List<ItemStack> enchanted;
+
+    /**
+     * Constructor
+     * @param inventory inventory to count
+     */
+    public InventorySnapshot(Inventory inventory) {
+        this(inventory.getContents());
+    }
+
+    /**
+     * Constructor
+     * @param contents stacks to count, empty slots are skipped
+     */
+    public InventorySnapshot(ItemStack[] contents) {
+        byItem = new ItemHistogram(contents.length);
+        byType = new ItemHistogram(contents.length);
+        plainByItem = new ItemHistogram(contents.length);
+        plainByType = new ItemHistogram(contents.length);
+        enchanted = new ArrayList<ItemStack>();
+        for (ItemStack itemStack : contents) {
+            if (itemStack == null || itemStack.getTypeId() == 0)
+                continue;
+            int amount = itemStack.getAmount();
+            byItem.add(ItemKey.of(itemStack, true), amount);
+            byType.add(ItemKey.of(itemStack, false), amount);
+            if (itemStack.getEnchantments().isEmpty()) {
+                plainByItem.add(ItemKey.of(itemStack, true), amount);
+                plainByType.add(ItemKey.of(itemStack, false), amount);
+            } else {
+                enchanted.add(itemStack.clone());
+            }
+        }
+    }
+
+    /**
+     * Counts items matching itemStack, ignoring enchantments
+     * @param itemStack item to count
+     * @param durability whether to check durability
+     * @return total amount
+     */
+    public int count(ItemStack itemStack, boolean durability) {
+        return (durability ? byItem : byType).get(ItemKey.of(itemStack, durability));
+    }
+
+    /**
+     * Counts items matching itemStack, possibly requiring identical enchantments
+     * @param itemStack item to count
+     * @param durability whether to check durability
+     * @param enchantment whether to check enchantment
+     * @return total amount
+     */
+    public int count(ItemStack itemStack, boolean durability, boolean enchantment) {
+        if (!enchantment)
+            return count(itemStack, durability);
+        if (itemStack.getEnchantments().isEmpty())
+            return (durability ? plainByItem : plainByType).get(ItemKey.of(itemStack, durability));
+        int amount = 0;
+        for (ItemStack e : enchanted)
+            if (ItemKey.of(e, durability) == ItemKey.of(itemStack, durability) && e.getEnchantments().equals(itemStack.getEnchantments()))
+                amount += e.getAmount();
+        return amount;
+    }
+
+    /**
+     * Checks for at least itemStack.getAmount() of itemStack
+     * @param itemStack item to look for
+     * @param durability whether to check durability
+     * @return whether enough are present
+     */
+    public boolean contains(ItemStack itemStack, boolean durability) {
+        return count(itemStack, durability) >= itemStack.getAmount();
+    }
+
+    /**
+     * Checks for at least itemStack.getAmount() of itemStack, possibly requiring identical enchantments
+     * @param itemStack item to look for
+     * @param durability whether to check durability
+     * @param enchantment whether to check enchantment
+     * @return whether enough are present
+     */
+    public boolean contains(ItemStack itemStack, boolean durability, boolean enchantment) {
+        return count(itemStack, durability, enchantment) >= itemStack.getAmount();
+    }
+
+    /**
+     * Checks for all of itemStacks at once; amounts of repeated items are added together
+     * @param durability whether to check durability
+     * @param itemStacks items to look for
+     * @return whether enough of every item is present
+     */
+    public boolean containsAll(boolean durability, ItemStack... itemStacks) {
+        ItemHistogram demand = new ItemHistogram(itemStacks.length);
+        ItemHistogram supply = durability ? byItem : byType;
+        for (ItemStack itemStack : itemStacks) {
+            long key = ItemKey.of(itemStack, durability);
+            if (demand.add(key, itemStack.getAmount()) > supply.get(key))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks for all of itemStacks at once, including durability; amounts of repeated items are added together
+     * @param itemStacks items to look for
+     * @return whether enough of every item is present
+     */
+    public boolean containsAll(ItemStack... itemStacks) {
+        return containsAll(true, itemStacks);
+    }
+}
@@ -0,0 +1,131 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing table of {@code int} counters keyed by {@code long}, usually a packed {@link ItemKey}.
+ * Counters may go negative; the table tracks how many are non-zero.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class ItemHistogram {
+    private long[] keys;
+    private int[] counts;
+    private boolean[] used;
+    private int size;
+    private int nonZero;
+
+    /**
+     * Constructor
+     * @param expected expected number of distinct keys
+     */
+    public ItemHistogram(int expected) {
+        int capacity = 8;
+        while (capacity < expected * 2)
+            capacity <<= 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i] && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Adds delta to the counter for key
+     * @param key key
+     * @param delta amount to add
+     * @return new value of the counter
+     */
+    public int add(long key, int delta) {
+        if ((size + 1) * 2 > keys.length)
+            grow();
+        int i = slot(key);
+        if (!used[i]) {
+            used[i] = true;
+            keys[i] = key;
+            size++;
+        }
+        int before = counts[i];
+        int after = before + delta;
+        counts[i] = after;
+        if (before == 0 && after != 0)
+            nonZero++;
+        else if (before != 0 && after == 0)
+            nonZero--;
+        return after;
+    }
+
+    /**
+     * @param key key
+     * @return counter for key, 0 if never added
+     */
+    public int get(long key) {
+        int i = slot(key);
+        return used[i] ? counts[i] : 0;
+    }
+
+    /**
+     * @return whether every counter is 0
+     */
+    public boolean isZero() {
+        return nonZero == 0;
+    }
+
+    /**
+     * @return number of distinct keys ever added
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Resets all counters, keeping capacity
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(counts, 0);
+        size = 0;
+        nonZero = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        used = new boolean[oldUsed.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Packs an item type and durability into a single {@code int}, type ID in the high 16 bits and durability in the low 16 bits.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class ItemKey {
+    private ItemKey() {
+    }
+
+    /**
+     * Packs type ID and durability
+     * @param typeId item type ID
+     * @param durability item durability
+     * @return packed key
+     */
+    public static int of(int typeId, short durability) {
+        return (typeId << 16) | (durability & 0xFFFF);
+    }
+
+    /**
+     * Packs type ID and durability of an {@link ItemStack}
+     * @param itemStack source
+     * @return packed key
+     */
+    public static int of(ItemStack itemStack) {
+        return of(itemStack.getTypeId(), itemStack.getDurability());
+    }
+
+    /**
+     * Packs type ID and, if requested, durability of an {@link ItemStack}
+     * @param itemStack source
+     * @param durability whether to include durability
+     * @return packed key
+     */
+    public static int of(ItemStack itemStack, boolean durability) {
+        return durability ? of(itemStack) : of(itemStack.getTypeId(), (short) 0);
+    }
+
+    /**
+     * @param key packed key
+     * @return type ID
+     */
+    public static int typeId(int key) {
+        return key >>> 16;
+    }
+
+    /**
+     * @param key packed key
+     * @return durability
+     */
+    public static short durability(int key) {
+        return (short) key;
+    }
+
+    /**
+     * @param key packed key
+     * @return {@link String} in form "id;durability"
+     */
+    public static String toString(int key) {
+        return typeId(key) + ";" + durability(key);
+    }
+}
@@ -0,0 +1,193 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from packed {@link ItemKey} to value.
+ * Type IDs up to maxBlockId with low durability live in a dense table indexed directly by key;
+ * everything else falls back to an open-addressing table with linear probing, where a slot is free while its value is
+ * {@code null}, so every packed key can be stored.
+ * Lookups are O(1) and do not allocate. Not safe for concurrent modification; build once, then share.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class ItemKeyMap<V> {
+    /**
+     * Number of durability values per type ID held in the dense table
+     */
+    public static final int DENSE_DURABILITY = 16;
+
+    private final int maxDenseTypeId;
+    private final Object[] dense;
+    private int[] keys;
+    private Object[] values;
+    private int sparseSize;
+    private int size;
+
+    /**
+     * Constructor
+     * @param maxDenseTypeId highest type ID stored in the dense table
+     */
+    public ItemKeyMap(int maxDenseTypeId) {
+        this.maxDenseTypeId = Math.max(0, maxDenseTypeId);
+        dense = new Object[(this.maxDenseTypeId + 1) * DENSE_DURABILITY];
+        keys = new int[16];
+        values = new Object[16];
+    }
+
+    private int denseIndex(int key) {
+        int typeId = ItemKey.typeId(key);
+        int durability = key & 0xFFFF;
+        if (typeId > maxDenseTypeId || durability >= DENSE_DURABILITY)
+            return -1;
+        return typeId * DENSE_DURABILITY + durability;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != null && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Gets value for key
+     * @param key packed key
+     * @return value or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int d = denseIndex(key);
+        if (d >= 0)
+            return (V) dense[d];
+        if (sparseSize == 0)
+            return null;
+        return (V) values[slot(key)];
+    }
+
+    /**
+     * Associates value with key
+     * @param key packed key
+     * @param value value, not {@code null}
+     * @return previous value or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("null value");
+        V previous;
+        int d = denseIndex(key);
+        if (d >= 0) {
+            previous = (V) dense[d];
+            dense[d] = value;
+        } else {
+            if ((sparseSize + 1) * 2 > keys.length)
+                grow();
+            int i = slot(key);
+            previous = (V) values[i];
+            if (previous == null) {
+                keys[i] = key;
+                sparseSize++;
+            }
+            values[i] = value;
+        }
+        if (previous == null)
+            size++;
+        return previous;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Flips the sign bits of both halves, so that signed int order is type ID order, then signed durability order
+     */
+    private static int sortable(int key) {
+        return key ^ 0x80008000;
+    }
+
+    /**
+     * @return all keys, by type ID and then by durability
+     */
+    public int[] keys() {
+        int[] ret = new int[size];
+        int n = 0;
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != null)
+                ret[n++] = sortable(ItemKey.of(i / DENSE_DURABILITY, (short) (i % DENSE_DURABILITY)));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null)
+                ret[n++] = sortable(keys[i]);
+        }
+        Arrays.sort(ret);
+        for (int i = 0; i < n; i++)
+            ret[i] = sortable(ret[i]);
+        return ret;
+    }
+
+    public int hashCode() {
+        int hash = 17;
+        for (int key : keys())
+            hash += key ^ get(key).hashCode();
+        return hash;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof ItemKeyMap)) return false;
+        if (this == other) return true;
+        ItemKeyMap<?> that = (ItemKeyMap<?>) other;
+        if (size != that.size) return false;
+        for (int key : keys())
+            if (!get(key).equals(that.get(key))) return false;
+        return true;
+    }
+
+    public String toString() {
+        StringBuilder str = new StringBuilder("{");
+        int[] keys = keys();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) str.append(", ");
+            str.append(ItemKey.toString(keys[i])).append("=").append(get(keys[i]));
+        }
+        str.append("}");
+        return str.toString();
+    }
+}
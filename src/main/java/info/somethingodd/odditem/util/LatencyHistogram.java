@@ -0,0 +1,100 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in power-of-two buckets: bucket b counts samples from 2^b up to 2^(b+1) nanoseconds,
+ * with bucket 0 also holding anything shorter. Recording is one striped increment and one striped add, so it is cheap
+ * enough for every lookup; percentiles are accurate to a factor of two.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of buckets; the last one also holds everything above 2^BUCKETS nanoseconds (about 18 minutes)
+     */
+    public static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(StripedCounter.STRIPES * BUCKETS);
+    private final StripedCounter total = new StripedCounter();
+
+    /**
+     * Records one sample
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = nanos <= 1 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+        counts.incrementAndGet(StripedCounter.stripe() * BUCKETS + bucket);
+        total.add(Math.max(0, nanos));
+    }
+
+    /**
+     * @return number of samples per bucket
+     */
+    public long[] getBuckets() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < counts.length(); i++)
+            buckets[i % BUCKETS] += counts.get(i);
+        return buckets;
+    }
+
+    /**
+     * @return number of samples
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @return sum of all samples in nanoseconds
+     */
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    /**
+     * @return mean sample in nanoseconds, or 0 if there are none
+     */
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+
+    /**
+     * Gets an upper bound for a percentile
+     * @param percentile between 0 and 100
+     * @return upper bound in nanoseconds of the bucket holding the percentile, or 0 if there are no samples
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] buckets = getBuckets();
+        long count = 0;
+        for (long bucket : buckets)
+            count += bucket;
+        if (count == 0)
+            return 0;
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= rank && seen > 0)
+                return b == BUCKETS - 1 ? Long.MAX_VALUE : (2L << b) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+}
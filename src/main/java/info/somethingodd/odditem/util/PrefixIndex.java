@@ -0,0 +1,221 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable case-insensitive prefix index over a set of names.
+ * Name ids are kept in an array sorted by case-folded characters, so every prefix maps to one contiguous range
+ * of positions in it, found by binary search. The id of a name is its rank in the given order; for ranges larger
+ * than {@link #TOP} the positions of the first {@link #TOP} names by rank are precomputed, so a query never walks
+ * a large range.
+ * Names are folded on the fly from an {@link AliasPool} rather than stored folded.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class PrefixIndex {
+    /**
+     * Number of leading names precomputed for large ranges, and the most names a query returns
+     */
+    public static final int TOP = 32;
+
+    private final AliasPool names;
+    /**
+     * Name ids in case-folded order
+     */
+    private final int[] byFolded;
+    private final Map<Long, int[]> tops;
+
+    /**
+     * Constructor
+     * @param names names to index
+     * @param order order in which matches are returned
+     */
+    public PrefixIndex(Collection<String> names, Comparator<String> order) {
+        this(pool(names, order));
+    }
+
+    /**
+     * Constructor
+     * @param names names to index, with ids in the order in which matches are returned
+     */
+    public PrefixIndex(AliasPool names) {
+        this.names = names;
+        Integer[] ids = new Integer[names.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        Arrays.sort(ids, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int length = Math.min(PrefixIndex.this.names.length(a), PrefixIndex.this.names.length(b));
+                for (int i = 0; i < length; i++) {
+                    int result = folded(a, i) - folded(b, i);
+                    if (result != 0)
+                        return result;
+                }
+                int result = PrefixIndex.this.names.length(a) - PrefixIndex.this.names.length(b);
+                return result != 0 ? result : a - b;
+            }
+        });
+        byFolded = new int[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            byFolded[i] = ids[i];
+        tops = new HashMap<Long, int[]>();
+        top(0, byFolded.length, 0);
+    }
+
+    private static AliasPool pool(Collection<String> names, Comparator<String> order) {
+        String[] byOrder = names.toArray(new String[names.size()]);
+        Arrays.sort(byOrder, order);
+        return new AliasPool(byOrder);
+    }
+
+    private char folded(int id, int index) {
+        return Character.toLowerCase(names.charAt(id, index));
+    }
+
+    private static long range(int lo, int hi) {
+        return ((long) lo << 32) | hi;
+    }
+
+    /**
+     * Computes the positions in byFolded of the leading names by rank in [lo, hi), all of which share their first depth folded characters,
+     * and stores them if the range is large.
+     * @return up to {@link #TOP} positions sorted by rank
+     */
+    private int[] top(int lo, int hi, int depth) {
+        if (hi - lo <= TOP)
+            return sortByRank(lo, hi);
+        int[] top = tops.get(range(lo, hi));
+        if (top != null)
+            return top;
+        List<int[]> parts = new ArrayList<int[]>();
+        int i = lo;
+        // names exactly depth long sort first and belong to no longer prefix
+        while (i < hi && names.length(byFolded[i]) == depth)
+            i++;
+        if (i > lo)
+            parts.add(sortByRank(lo, i));
+        while (i < hi) {
+            char c = folded(byFolded[i], depth);
+            int j = i + 1;
+            while (j < hi && folded(byFolded[j], depth) == c)
+                j++;
+            parts.add(top(i, j, depth + 1));
+            i = j;
+        }
+        int count = 0;
+        for (int[] part : parts)
+            count += part.length;
+        int[] merged = new int[count];
+        count = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, merged, count, part.length);
+            count += part.length;
+        }
+        sortByRank(merged);
+        top = Arrays.copyOf(merged, Math.min(TOP, merged.length));
+        tops.put(range(lo, hi), top);
+        return top;
+    }
+
+    private int[] sortByRank(int lo, int hi) {
+        int[] indices = new int[hi - lo];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = lo + i;
+        sortByRank(indices);
+        return indices;
+    }
+
+    private void sortByRank(int[] indices) {
+        // insertion sort; callers pass at most a few multiples of TOP
+        for (int i = 1; i < indices.length; i++) {
+            int index = indices[i];
+            int j = i - 1;
+            while (j >= 0 && byFolded[indices[j]] > byFolded[index]) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = index;
+        }
+    }
+
+    /**
+     * Compares the first prefix.length() characters of a name against a prefix, folding both on the fly
+     */
+    private int compare(int id, String prefix) {
+        int length = Math.min(names.length(id), prefix.length());
+        for (int i = 0; i < length; i++) {
+            int result = folded(id, i) - Character.toLowerCase(prefix.charAt(i));
+            if (result != 0)
+                return result;
+        }
+        return names.length(id) < prefix.length() ? -1 : 0;
+    }
+
+    /**
+     * Returns names beginning with prefix, ignoring case
+     * @param prefix prefix to complete
+     * @param limit maximum number of names, at most {@link #TOP}
+     * @return up to limit names in rank order
+     */
+    public List<String> startingWith(String prefix, int limit) {
+        limit = Math.min(limit, TOP);
+        int lo = 0;
+        int hi = byFolded.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(byFolded[mid], prefix) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        int start = lo;
+        hi = byFolded.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(byFolded[mid], prefix) <= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        int end = lo;
+        if (start >= end || limit < 1)
+            return Collections.emptyList();
+        int[] indices;
+        if (end - start <= TOP)
+            indices = sortByRank(start, end);
+        else
+            indices = tops.get(range(start, end));
+        List<String> matches = new ArrayList<String>(Math.min(limit, indices.length));
+        for (int i = 0; i < indices.length && i < limit; i++)
+            matches.add(names.get(byFolded[indices[i]]));
+        return matches;
+    }
+
+    /**
+     * @return number of names indexed
+     */
+    public int size() {
+        return byFolded.length;
+    }
+}
@@ -0,0 +1,76 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter for statistics updated from many threads. Each thread adds to one of several cells,
+ * each on its own cache line, so concurrent updates rarely contend; reading sums the cells.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public final class StripedCounter {
+    /**
+     * Number of cells, a power of two
+     */
+    static final int STRIPES;
+    /**
+     * Spacing between cells, in longs, to keep them on separate cache lines
+     */
+    private static final int PAD = 8;
+
+    static {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64)
+            stripes <<= 1;
+        STRIPES = stripes;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    /**
+     * @return cell index of the current thread
+     */
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Adds to the counter
+     * @param delta amount to add
+     */
+    public void add(long delta) {
+        cells.getAndAdd(stripe() * PAD, delta);
+    }
+
+    /**
+     * Adds one to the counter
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * @return current total; concurrent updates may or may not be included
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++)
+            sum += cells.get(i * PAD);
+        return sum;
+    }
+}
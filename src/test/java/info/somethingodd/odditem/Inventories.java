@@ -0,0 +1,57 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+/**
+ * Headless {@link Inventory} stand-ins backed by an array of slots, implementing only what OddItem reads.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+final class Inventories {
+    private Inventories() {
+    }
+
+    /**
+     * Creates an inventory
+     * @param contents slots, copied; {@code null} for empty slots
+     * @return inventory
+     */
+    static Inventory of(ItemStack... contents) {
+        final ItemStack[] slots = Arrays.copyOf(contents, contents.length);
+        return (Inventory) Proxy.newProxyInstance(Inventory.class.getClassLoader(), new Class<?>[] {Inventory.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                int arity = args == null ? 0 : args.length;
+                if (name.equals("getContents") && arity == 0)
+                    return slots.clone();
+                if (name.equals("getSize") && arity == 0)
+                    return slots.length;
+                if (name.equals("getItem") && arity == 1)
+                    return slots[(Integer) args[0]];
+                if (name.equals("toString") && arity == 0)
+                    return Arrays.toString(slots);
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+}
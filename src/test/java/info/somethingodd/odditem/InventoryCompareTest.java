@@ -0,0 +1,140 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link OddItem#compare(org.bukkit.inventory.Inventory, org.bukkit.inventory.Inventory, boolean, boolean)}
+ * against a straightforward quadratic multiset comparison.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class InventoryCompareTest {
+    @Test
+    public void matchesReference() {
+        Random random = new Random(10);
+        for (int n = 0; n < 5000; n++) {
+            ItemStack[] a = contents(random, random.nextInt(55));
+            ItemStack[] b = variant(random, a);
+            for (int flags = 0; flags < 4; flags++) {
+                boolean durability = (flags & 1) != 0;
+                boolean quantity = (flags & 2) != 0;
+                assertEquals(Arrays.toString(a) + " " + Arrays.toString(b) + " durability=" + durability + " quantity=" + quantity,
+                        reference(a, b, durability, quantity),
+                        OddItem.compare(Inventories.of(a), Inventories.of(b), durability, quantity));
+            }
+        }
+    }
+
+    @Test
+    public void ignoresEmptySlotsAndOrder() {
+        ItemStack[] a = {new ItemStack(1, 2, (short) 0), null, new ItemStack(0, 1, (short) 0), new ItemStack(4, 1, (short) 3)};
+        ItemStack[] b = {new ItemStack(4, 1, (short) 3), new ItemStack(1, 2, (short) 0)};
+        assertTrue(OddItem.compare(Inventories.of(a), Inventories.of(b)));
+        assertTrue(OddItem.compare(Inventories.of(b), Inventories.of(a)));
+    }
+
+    @Test
+    public void detectsLeftovers() {
+        ItemStack[] a = {new ItemStack(1, 1, (short) 0)};
+        ItemStack[] b = {new ItemStack(1, 1, (short) 0), new ItemStack(1, 1, (short) 0)};
+        assertFalse(OddItem.compare(Inventories.of(a), Inventories.of(b)));
+        assertFalse(OddItem.compare(Inventories.of(b), Inventories.of(a)));
+    }
+
+    /**
+     * Pairs off equal stacks one at a time, as OddItem used to, but without skipping or ignoring leftovers
+     */
+    private static boolean reference(ItemStack[] a, ItemStack[] b, boolean durability, boolean quantity) {
+        List<ItemStack> left = nonEmpty(a);
+        List<ItemStack> right = nonEmpty(b);
+        for (ItemStack itemStack : left) {
+            int j = 0;
+            while (j < right.size() && !OddItem.compare(itemStack, right.get(j), durability, quantity))
+                j++;
+            if (j == right.size())
+                return false;
+            right.remove(j);
+        }
+        return right.isEmpty();
+    }
+
+    private static List<ItemStack> nonEmpty(ItemStack[] contents) {
+        List<ItemStack> stacks = new ArrayList<ItemStack>();
+        for (ItemStack itemStack : contents)
+            if (itemStack != null && itemStack.getTypeId() != 0)
+                stacks.add(itemStack);
+        return stacks;
+    }
+
+    /**
+     * Generates slots from few types, durabilities and amounts so that equal stacks are common
+     */
+    private static ItemStack[] contents(Random random, int size) {
+        ItemStack[] contents = new ItemStack[size];
+        for (int i = 0; i < size; i++)
+            contents[i] = random.nextInt(5) == 0 ? null : stack(random);
+        return contents;
+    }
+
+    private static ItemStack stack(Random random) {
+        return new ItemStack(random.nextInt(5), 1 + random.nextInt(3), (short) random.nextInt(3));
+    }
+
+    /**
+     * Shuffles a copy of the contents into a possibly different size, then maybe alters a few slots
+     */
+    private static ItemStack[] variant(Random random, ItemStack[] contents) {
+        if (random.nextInt(4) == 0)
+            return contents(random, random.nextInt(55));
+        List<ItemStack> slots = new ArrayList<ItemStack>();
+        for (ItemStack itemStack : contents)
+            slots.add(itemStack == null ? null : itemStack.clone());
+        for (int i = random.nextInt(4); i > 0; i--)
+            slots.add(null);
+        Collections.shuffle(slots, random);
+        int changes = random.nextInt(3);
+        for (int i = 0; i < changes && !slots.isEmpty(); i++) {
+            int at = random.nextInt(slots.size());
+            switch (random.nextInt(4)) {
+                case 0:
+                    slots.set(at, stack(random));
+                    break;
+                case 1:
+                    slots.remove(at);
+                    break;
+                case 2:
+                    if (slots.get(at) != null)
+                        slots.get(at).setDurability((short) random.nextInt(3));
+                    break;
+                default:
+                    if (slots.get(at) != null)
+                        slots.get(at).setAmount(1 + random.nextInt(3));
+            }
+        }
+        return slots.toArray(new ItemStack[slots.size()]);
+    }
+}
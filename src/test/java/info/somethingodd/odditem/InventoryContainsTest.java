@@ -0,0 +1,69 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem;
+
+import info.somethingodd.odditem.util.InventorySnapshot;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that one-shot "at least" queries agree with the same queries on an {@link InventorySnapshot},
+ * including stacks with and without enchantments.
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class InventoryContainsTest {
+    @Test
+    public void oneShotMatchesSnapshot() {
+        Random random = new Random(12);
+        for (int n = 0; n < 2000; n++) {
+            ItemStack[] contents = new ItemStack[random.nextInt(55)];
+            for (int i = 0; i < contents.length; i++)
+                contents[i] = random.nextInt(5) == 0 ? null : stack(random, 64);
+            Inventory inventory = Inventories.of(contents);
+            InventorySnapshot snapshot = OddItem.snapshot(inventory);
+            for (int q = 0; q < 10; q++) {
+                ItemStack query = stack(random, 200);
+                for (int flags = 0; flags < 4; flags++) {
+                    boolean durability = (flags & 1) != 0;
+                    boolean enchantment = (flags & 2) != 0;
+                    assertEquals(Arrays.toString(contents) + " " + query + " durability=" + durability + " enchantment=" + enchantment,
+                            snapshot.contains(query, durability, enchantment),
+                            OddItem.contains(inventory, query, durability, random.nextBoolean(), enchantment, false));
+                }
+            }
+        }
+    }
+
+    private static ItemStack stack(Random random, int amount) {
+        ItemStack itemStack = new ItemStack(random.nextInt(5), random.nextInt(amount + 1), (short) random.nextInt(3));
+        switch (random.nextInt(4)) {
+            case 0:
+                itemStack.addUnsafeEnchantment(Enchantment.DURABILITY, 1 + random.nextInt(2));
+                break;
+            case 1:
+                itemStack.addUnsafeEnchantment(Enchantment.DURABILITY, 1);
+                itemStack.addUnsafeEnchantment(Enchantment.DAMAGE_ALL, 1);
+                break;
+        }
+        return itemStack;
+    }
+}
@@ -0,0 +1,90 @@
+package info.somethingodd.odditem.bktree;
+
+import info.somethingodd.odditem.configuration.Aliases;
+import info.somethingodd.odditem.configuration.ItemTemplate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the flattened tree, alone and as built by {@link Aliases} over
+ * the alias pool, answers every search exactly as the node tree it came from.
+ *
+ * @author Gordon Pettey
+ */
+public class CompactBKTreeTest {
+    private static final String[] COMPARATORS = {"c", "k", "m", "r", "s"};
+
+    @Test
+    public void emptyTreesAgree() {
+        for (String comparator : COMPARATORS) {
+            BKTree<String> tree = new BKTree<String>(comparator);
+            CompactBKTree<String> compact = tree.compact();
+            assertEquals(0, compact.size());
+            assertEquals(tree.findBestMatch("stone").toString(), compact.findBestMatch("stone").toString());
+            assertEquals(tree.findBestMatches("stone", 5, 2, String.CASE_INSENSITIVE_ORDER).toString(), compact.findBestMatches("stone", 5, 2, String.CASE_INSENSITIVE_ORDER).toString());
+        }
+    }
+
+    @Test
+    public void unlimitedSearchesReturnEveryTerm() {
+        List<String> words = Words.generate(50, 7);
+        BKTree<String> tree = new BKTree<String>("m");
+        for (String word : words)
+            tree.add(word);
+        List<SuggestionIndex<String>> indices = new ArrayList<SuggestionIndex<String>>();
+        indices.add(tree);
+        indices.add(tree.compact());
+        indices.add(new TrigramIndex<String>(words));
+        indices.add(PatchedSuggestionIndex.patch(tree.compact(), "m", words.subList(0, 0), words.subList(0, 5)));
+        for (SuggestionIndex<String> index : indices)
+            assertEquals(index.size(), index.findBestMatches("stone", Integer.MAX_VALUE, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void searchesAgree() {
+        List<String> words = Words.generate(600, 8);
+        Map<String, Object> serialized = new LinkedHashMap<String, Object>();
+        List<String> order = new ArrayList<String>();
+        int item = 0;
+        for (int i = 0; i < words.size(); item++) {
+            List<String> aliases = new ArrayList<String>(words.subList(i, Math.min(words.size(), i + 1 + item % 4)));
+            serialized.put((1 + item / 16) + ";" + (item % 16), aliases);
+            order.addAll(aliases);
+            i += aliases.size();
+        }
+        List<String> queries = new ArrayList<String>(words);
+        queries.addAll(Words.misspell(words, 8));
+        for (String comparator : COMPARATORS) {
+            BKTree<String> tree = new BKTree<String>(comparator);
+            for (String alias : order)
+                tree.add(alias);
+            CompactBKTree<String> compact = tree.compact();
+            Aliases aliases = new Aliases(serialized, comparator, 255);
+            SuggestionIndex<String> pooled = aliases.getSuggestions();
+            assertEquals(comparator, tree.size(), compact.size());
+            assertEquals(comparator, tree.size(), pooled.size());
+            for (String query : queries) {
+                String expected = search(tree, query);
+                assertEquals(comparator + " " + query, expected, search(compact, query));
+                assertEquals(comparator + " " + query, expected, search(pooled, query));
+            }
+        }
+        Aliases aliases = new Aliases(serialized, "m", 255);
+        for (Map.Entry<String, Object> entry : serialized.entrySet())
+            for (String alias : (List<String>) entry.getValue())
+                assertEquals(alias, ItemTemplate.valueOf(entry.getKey()), aliases.getTemplate(alias));
+    }
+
+    private static String search(SuggestionIndex<String> index, String query) {
+        return index.findBestMatch(query) + " " + index.findBestWordMatch(query)
+                + " " + index.findBestMatches(query, 5, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER)
+                + " " + index.findBestMatches(query, 20, 2, String.CASE_INSENSITIVE_ORDER);
+    }
+}
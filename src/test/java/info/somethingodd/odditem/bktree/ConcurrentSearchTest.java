@@ -0,0 +1,95 @@
+package info.somethingodd.odditem.bktree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs many searches over one shared tree from several threads at once and
+ * checks every result against the same search run alone.
+ *
+ * @author Gordon Pettey
+ */
+public class ConcurrentSearchTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2;
+    private static final String[] COMPARATORS = {"c", "k", "m", "r", "s"};
+
+    @Test(timeout = 120000)
+    public void treeSearchesDoNotInterfere() throws Exception {
+        for (String comparator : COMPARATORS)
+            assertIndependent(comparator, tree(comparator));
+    }
+
+    @Test(timeout = 120000)
+    public void compactSearchesDoNotInterfere() throws Exception {
+        for (String comparator : COMPARATORS)
+            assertIndependent(comparator, tree(comparator).compact());
+    }
+
+    private static BKTree<String> tree(String comparator) {
+        BKTree<String> tree = new BKTree<String>(comparator);
+        for (String word : Words.generate(1000, 6))
+            tree.add(word);
+        return tree;
+    }
+
+    /**
+     * Searches every query sequentially, then again from all threads at once, starting each thread at a different
+     * query so that different searches overlap
+     * @param comparator comparator mode, for messages
+     * @param index index to search
+     * @throws Exception if a search thread fails
+     */
+    private static void assertIndependent(String comparator, final SuggestionIndex<String> index) throws Exception {
+        List<String> words = Words.generate(1000, 6);
+        final List<String> queries = new ArrayList<String>(words.subList(0, 100));
+        queries.addAll(Words.misspell(words.subList(100, 200), 6));
+        final List<String> expected = new ArrayList<String>(queries.size());
+        for (String query : queries)
+            expected.add(search(index, query));
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t * queries.size() / THREADS;
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        for (int round = 0; round < ROUNDS; round++) {
+                            for (int i = 0; i < queries.size(); i++) {
+                                int q = (offset + i) % queries.size();
+                                String actual = search(index, queries.get(q));
+                                if (!actual.equals(expected.get(q)))
+                                    return queries.get(q) + ": expected " + expected.get(q) + " but was " + actual;
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures)
+                assertEquals(comparator, null, future.get());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static String search(SuggestionIndex<String> index, String query) {
+        return index.findBestMatch(query) + " " + index.findBestWordMatch(query) + " " + index.findBestMatches(query, 5, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER);
+    }
+}
@@ -0,0 +1,85 @@
+package info.somethingodd.odditem.bktree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks trigram searches against a scan of every term, including terms
+ * that share no trigram with the query.
+ *
+ * @author Gordon Pettey
+ */
+public class TrigramIndexTest {
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+
+    @Test
+    public void findsTermsSharingNoTrigram() {
+        TrigramIndex<String> index = new TrigramIndex<String>(Arrays.asList("eslm", "hsl", "stone", "wood"));
+        assertEquals("[Match{term=eslm,distance=2,visited=0}, Match{term=hsl,distance=2,visited=0}]",
+                index.findBestMatches("osl4", 2, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER).toString());
+        index = new TrigramIndex<String>(Arrays.asList("nrhsb", "qqqqqobo"));
+        assertEquals("nrhsb", index.findBestWordMatch("vnrkhobo"));
+        index = new TrigramIndex<String>(Arrays.asList("ab"));
+        assertEquals("ab", index.findBestWordMatch("zzzzzzzz"));
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        TrigramIndex<String> index = new TrigramIndex<String>(Collections.<String>emptyList());
+        assertEquals(null, index.findBestWordMatch("stone"));
+        assertEquals(0, index.findBestMatches("stone", 5, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER).size());
+    }
+
+    @Test
+    public void matchesScan() {
+        List<String> words = Words.generate(2000, 24);
+        List<String> queries = new ArrayList<String>(Words.misspell(words.subList(0, 200), 24));
+        queries.addAll(Words.generate(100, 25));
+        queries.add("a");
+        queries.add("");
+        TrigramIndex<String> index = new TrigramIndex<String>(words);
+        for (String query : queries) {
+            List<Match<String>> all = scan(words, query);
+            Match<String> match = index.findBestMatch(query);
+            assertNotNull(query, match.getTerm());
+            assertEquals(query, all.get(0).getDistance(), match.getDistance());
+            assertEquals(query, levenshtein.distance(query, match.getTerm(), Integer.MAX_VALUE), match.getDistance());
+            for (int maxDistance : new int[] {0, 1, 2, 3, Integer.MAX_VALUE}) {
+                List<String> expected = new ArrayList<String>();
+                for (Match<String> candidate : all)
+                    if (candidate.getDistance() <= maxDistance && expected.size() < 5)
+                        expected.add(candidate.toString());
+                List<String> actual = new ArrayList<String>();
+                for (Match<String> candidate : index.findBestMatches(query, 5, maxDistance, String.CASE_INSENSITIVE_ORDER))
+                    actual.add(candidate.toString());
+                assertEquals(query + " within " + maxDistance, expected, actual);
+            }
+        }
+    }
+
+    /**
+     * Ranks every term by distance, then by order
+     */
+    private List<Match<String>> scan(List<String> words, String query) {
+        List<Match<String>> all = new ArrayList<Match<String>>();
+        for (String word : words)
+            all.add(new Match<String>(word, levenshtein.distance(query, word, Integer.MAX_VALUE)));
+        Collections.sort(all, new Comparator<Match<String>>() {
+            @Override
+            public int compare(Match<String> a, Match<String> b) {
+                if (a.getDistance() != b.getDistance())
+                    return a.getDistance() < b.getDistance() ? -1 : 1;
+                return String.CASE_INSENSITIVE_ORDER.compare(a.getTerm(), b.getTerm());
+            }
+        });
+        return all;
+    }
+}
@@ -0,0 +1,70 @@
+package info.somethingodd.odditem.bktree;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generated alias-like words and misspellings for search tests.
+ *
+ * @author Gordon Pettey
+ */
+final class Words {
+    private Words() {
+    }
+
+    /**
+     * Generates distinct lowercase words of four to twelve letters, some ending in a digit
+     * @param count number of words
+     * @param seed random seed
+     * @return words in generation order
+     */
+    static List<String> generate(int count, long seed) {
+        Random random = new Random(seed);
+        Set<String> words = new LinkedHashSet<String>();
+        while (words.size() < count) {
+            StringBuilder str = new StringBuilder();
+            int length = 4 + random.nextInt(9);
+            for (int i = 0; i < length; i++)
+                str.append((char) ('a' + random.nextInt(26)));
+            if (random.nextInt(4) == 0)
+                str.append(random.nextInt(10));
+            words.add(str.toString());
+        }
+        return new ArrayList<String>(words);
+    }
+
+    /**
+     * Misspells each word by one to three random edits
+     * @param words words to misspell
+     * @param seed random seed
+     * @return one misspelling per word
+     */
+    static List<String> misspell(List<String> words, long seed) {
+        Random random = new Random(seed);
+        List<String> misspelled = new ArrayList<String>(words.size());
+        for (String word : words) {
+            StringBuilder str = new StringBuilder(word);
+            int edits = 1 + random.nextInt(3);
+            for (int i = 0; i < edits; i++) {
+                int at = random.nextInt(str.length());
+                char c = (char) ('a' + random.nextInt(26));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        str.setCharAt(at, c);
+                        break;
+                    case 1:
+                        str.insert(at, c);
+                        break;
+                    default:
+                        if (str.length() > 1)
+                            str.deleteCharAt(at);
+                }
+            }
+            misspelled.add(str.toString());
+        }
+        return misspelled;
+    }
+}
@@ -0,0 +1,75 @@
+/* This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.somethingodd.odditem.configuration;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips of items.idx
+ *
+ * @author Gordon Pettey (petteyg359@gmail.com)
+ */
+public class AliasCacheTest {
+    private static Map<String, Object> serialized() {
+        Map<String, Object> serialized = new LinkedHashMap<String, Object>();
+        serialized.put("1;0", Arrays.asList("stone", "rock"));
+        serialized.put("4;0", Arrays.asList("cobblestone", "cobble", "Cstone"));
+        serialized.put("35;14", Arrays.asList("redwool", "wool14"));
+        return serialized;
+    }
+
+    @Test
+    public void readsWhatWasWritten() throws IOException {
+        for (String comparator : new String[] {"m", "r", "t"}) {
+            File file = File.createTempFile("items", ".idx");
+            try {
+                byte[] key = AliasCache.key(comparator, 255, new ByteArrayInputStream(new byte[] {1}));
+                AliasCache cache = new AliasCache(file, comparator, 255, key);
+                Aliases aliases = new Aliases(serialized(), comparator, 255);
+                cache.write(serialized(), aliases);
+                Aliases read = cache.read();
+                assertEquals(comparator, aliases, read);
+                assertEquals(comparator, aliases.getSuggestions().findBestMatches("cobbel", 3, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER).toString(),
+                        read.getSuggestions().findBestMatches("cobbel", 3, Integer.MAX_VALUE, String.CASE_INSENSITIVE_ORDER).toString());
+                // the file was closed by read, so it can be replaced
+                cache.write(serialized(), read);
+                assertEquals(comparator, aliases, cache.read());
+            } finally {
+                assertTrue(file.delete());
+            }
+        }
+    }
+
+    @Test
+    public void ignoresOtherKeys() throws IOException {
+        File file = File.createTempFile("items", ".idx");
+        try {
+            new AliasCache(file, "m", 255, AliasCache.key("m", 255, new ByteArrayInputStream(new byte[] {1}))).write(serialized(), new Aliases(serialized(), "m", 255));
+            assertNull(new AliasCache(file, "m", 255, AliasCache.key("m", 255, new ByteArrayInputStream(new byte[] {2}))).read());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}